@@ -0,0 +1,105 @@
+package via.sep4.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+/**
+ * In-memory stand-ins for persistence, so benchmarks measure only the code
+ * under test.
+ */
+final class BenchmarkStubs {
+
+    private BenchmarkStubs() {
+    }
+
+    /**
+     * Creates a repository whose save methods return their argument and whose
+     * finders return the given answers, or an empty result.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+
+            switch (method.getName()) {
+                case "save":
+                case "saveAll":
+                    return args[0];
+                case "findById":
+                    return Optional.empty();
+                case "existsById":
+                    return true;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + " stub";
+                default:
+                    return method.getReturnType() == boolean.class ? false : null;
+            }
+        });
+    }
+
+    static PlatformTransactionManager transactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    /**
+     * Creates a JdbcTemplate that reports a non-PostgreSQL database and
+     * accepts every batch without sending it anywhere.
+     */
+    static JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            public <T> T execute(ConnectionCallback<T> action) {
+                return null;
+            }
+
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                return new int[batchArgs.size()];
+            }
+        };
+    }
+
+    /**
+     * Sets an {@code @Autowired} field the way Spring would.
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass(), e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package via.sep4.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import via.sep4.processing.DataConverter;
+
+/**
+ * {@link DataConverter} parse and export on greenhouse data of realistic
+ * width.
+ *
+ * <p>
+ * parseInput keeps at most 1000 rows but still splits the whole input, so the
+ * parse benchmark measures what an upload of that many lines costs. The
+ * export benchmarks fill {@link DataConverter#getData()} directly, like the
+ * export endpoints do, and go through a temp file the same way. They return
+ * the file's size rather than reading it back, since the 10M row files do not
+ * fit in a String. Export rows cycle through a pool of distinct rows so that
+ * 10M rows fit in the heap.
+ *
+ * <p>
+ * The 10M row case needs a few GB of heap; on small machines run with
+ * {@code -Djmh.args="-p rows=1000,100000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DataConverterBenchmark {
+
+    private static final int ROW_POOL_SIZE = 1024;
+
+    static final String UPLOAD_HEADER = "Luft_temperatur,Luftfugtighed,Jord_fugtighed,Lys_højeste_intensitet,"
+            + "Lys_laveste_intensitet,Lys_indstilling,Lys_gennemsnit,Afstand_til_Højde,"
+            + "Vand_tid_fra_sidste,Vand_mængde,Vand_frekvens,Tidsstempel";
+
+    static final List<String> EXPORT_HEADERS = List.of(
+            "timestamp", "luftTemperatur", "luftfugtighed", "jordFugtighed",
+            "lysIndstilling", "lysHøjesteIntensitet", "lysLavesteIntensitet", "lysGennemsnit",
+            "afstandTilHøjde", "vandTidFraSidste", "vandMængde", "vandFrekvens");
+
+    @Param({ "1000", "100000", "10000000" })
+    public int rows;
+
+    private String uploadInput;
+    private DataConverter exportConverter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        uploadInput = uploadInput(rows);
+
+        List<Map<String, String>> pool = exportRows(ROW_POOL_SIZE);
+        exportConverter = new DataConverter(true);
+        exportConverter.getHeaders().addAll(EXPORT_HEADERS);
+        List<Map<String, String>> data = exportConverter.getData();
+        for (int i = 0; i < rows; i++) {
+            data.add(pool.get(i % ROW_POOL_SIZE));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        uploadInput = null;
+        exportConverter = null;
+    }
+
+    @Benchmark
+    public DataConverter parse(RowCounters counters) {
+        DataConverter converter = new DataConverter(true);
+        converter.parseInput(uploadInput, ',');
+        counters.rowsProcessed += rows;
+        return converter;
+    }
+
+    @Benchmark
+    public long exportCsv(RowCounters counters) throws IOException {
+        Path file = Files.createTempFile("benchmark", ".csv");
+        try {
+            exportConverter.exportToCsv(file.toString(), ',');
+            counters.rowsProcessed += rows;
+            return Files.size(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public long exportJson(RowCounters counters) throws IOException {
+        Path file = Files.createTempFile("benchmark", ".json");
+        try {
+            exportConverter.exportToJson(file.toString());
+            counters.rowsProcessed += rows;
+            return Files.size(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Per-row figures next to JMH's per-operation ones: rows/s, bytes
+     * allocated per row on the benchmark thread and the peak heap in the
+     * iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RowCounters {
+        private static final com.sun.management.ThreadMXBean THREADS =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long rowsProcessed;
+        private long allocatedAtStart;
+
+        public double allocatedBytesPerRow;
+        public double peakHeapMb;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rowsProcessed = 0;
+            allocatedAtStart = THREADS.getCurrentThreadAllocatedBytes();
+            for (MemoryPoolMXBean pool : heapPools()) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void collect() {
+            long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedAtStart;
+            allocatedBytesPerRow = rowsProcessed == 0 ? 0 : (double) allocated / rowsProcessed;
+
+            long peak = 0;
+            for (MemoryPoolMXBean pool : heapPools()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+            peakHeapMb = peak / (1024.0 * 1024.0);
+        }
+
+        private static List<MemoryPoolMXBean> heapPools() {
+            List<MemoryPoolMXBean> pools = new ArrayList<>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pools.add(pool);
+                }
+            }
+            return pools;
+        }
+    }
+
+    private static String uploadInput(int rows) {
+        StringBuilder input = new StringBuilder(UPLOAD_HEADER.length() + rows * 72);
+        input.append(UPLOAD_HEADER).append('\n');
+        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 1, 0, 0);
+        for (int i = 0; i < rows; i++) {
+            input.append(18 + (i % 90) / 10.0).append(',')
+                    .append(40 + i % 30).append(',')
+                    .append(55 + i % 35).append(',')
+                    .append(900 + i % 200).append(',')
+                    .append(300 + i % 150).append(',')
+                    .append(i % 3 == 0 ? "AUTO" : "MANUAL").append(',')
+                    .append(650 + i % 100).append(',')
+                    .append(20 + i % 40).append(',')
+                    .append(300 + i % 120).append(',')
+                    .append(200 + i % 100).append(',')
+                    .append(6 + i % 6).append(',')
+                    .append(timestamp.plusMinutes(i)).append('\n');
+        }
+        return input.toString();
+    }
+
+    private static List<Map<String, String>> exportRows(int count) {
+        List<Map<String, String>> rows = new ArrayList<>(count);
+        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 1, 0, 0);
+        for (int i = 0; i < count; i++) {
+            Map<String, String> row = new HashMap<>();
+            row.put("timestamp", timestamp.plusMinutes(i).toString());
+            row.put("luftTemperatur", String.valueOf(18 + (i % 90) / 10.0));
+            row.put("luftfugtighed", String.valueOf(40.0 + i % 30));
+            row.put("jordFugtighed", String.valueOf(55.0 + i % 35));
+            row.put("lysIndstilling", i % 3 == 0 ? "AUTO" : "MANUAL");
+            row.put("lysHøjesteIntensitet", String.valueOf(900.0 + i % 200));
+            row.put("lysLavesteIntensitet", String.valueOf(300.0 + i % 150));
+            row.put("lysGennemsnit", String.valueOf(650.0 + i % 100));
+            row.put("afstandTilHøjde", String.valueOf(20.0 + i % 40));
+            row.put("vandTidFraSidste", String.valueOf(300.0 + i % 120));
+            row.put("vandMængde", String.valueOf(200.0 + i % 100));
+            row.put("vandFrekvens", String.valueOf(6.0 + i % 6));
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,149 @@
+package via.sep4.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import via.sep4.exceptions.ValidationException;
+import via.sep4.processing.DataConverter;
+import via.sep4.processing.DataValidator;
+import via.sep4.processing.DataValidator.ValidationResult;
+
+/**
+ * Every {@link DataValidator} check on its own, plus the map and
+ * {@link DataConverter} entry points that run them all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataValidatorBenchmark {
+
+    private final DataValidator validator = new DataValidator();
+
+    // boxed once, as they arrive from the parsers
+    private final Float temperature = 23.4f;
+    private final Integer humidity = 48;
+    private final Integer soilMoisture = 70;
+    private final Integer highestIntensity = 1000;
+    private final Integer lowestIntensity = 500;
+    private final Integer lightSetting = 2;
+    private final Integer height = 30;
+    private final Integer waterTime = 360;
+    private final Integer waterAmount = 250;
+    private final Integer waterFrequency = 8;
+    private final String timestamp = "2025-05-01T12:00:00";
+
+    private Map<String, String> validData;
+    private Map<String, String> invalidData;
+    private DataConverter converter;
+
+    @Setup
+    public void setUp() {
+        validData = new HashMap<>();
+        validData.put("Luft_temperatur", "23.4");
+        validData.put("Luftfugtighed", "48");
+        validData.put("Jord_fugtighed", "70");
+        validData.put("Lys_højeste_intensitet", "1000");
+        validData.put("Lys_laveste_intensitet", "500");
+        validData.put("Lys_indstilling", "2");
+        validData.put("Afstand_til_Højde", "30");
+        validData.put("Vand_tid_fra_sidste", "360");
+        validData.put("Vand_mængde", "250");
+        validData.put("Vand_frekvens", "8");
+        validData.put("Tidsstempel", timestamp);
+
+        invalidData = new HashMap<>(validData);
+        invalidData.put("Luft_temperatur", "95.0");
+        invalidData.put("Luftfugtighed", "140");
+
+        converter = new DataConverter(true);
+        converter.parseInput("Luft_temperatur,Luftfugtighed,Jord_fugtighed,Lys_højeste_intensitet,"
+                + "Lys_laveste_intensitet,Lys_indstilling,Lys_gennemsnit,Afstand_til_Højde,"
+                + "Vand_tid_fra_sidste,Vand_mængde,Vand_frekvens,Tidsstempel\n"
+                + "23.4,48,70,1000,500,2,750,30,360,250,8," + timestamp, ',');
+    }
+
+    @Benchmark
+    public ValidationResult validateTemperature() {
+        return validator.validateTemperature(temperature);
+    }
+
+    @Benchmark
+    public ValidationResult validateHumidity() {
+        return validator.validateHumidity(humidity);
+    }
+
+    @Benchmark
+    public ValidationResult validateSoilMoisture() {
+        return validator.validateSoilMoisture(soilMoisture);
+    }
+
+    @Benchmark
+    public ValidationResult validateLightIntensity() {
+        return validator.validateLightIntensity(highestIntensity, lowestIntensity);
+    }
+
+    @Benchmark
+    public ValidationResult validateLightSetting() {
+        return validator.validateLightSetting(lightSetting);
+    }
+
+    @Benchmark
+    public ValidationResult validateHeight() {
+        return validator.validateHeight(height);
+    }
+
+    @Benchmark
+    public ValidationResult validateWaterTime() {
+        return validator.validateWaterTime(waterTime);
+    }
+
+    @Benchmark
+    public ValidationResult validateWaterAmount() {
+        return validator.validateWaterAmount(waterAmount);
+    }
+
+    @Benchmark
+    public ValidationResult validateWaterFrequency() {
+        return validator.validateWaterFrequency(waterFrequency);
+    }
+
+    @Benchmark
+    public ValidationResult validateTimestamp() {
+        return validator.validateTimestamp(timestamp);
+    }
+
+    @Benchmark
+    public void validateMeasurementDataValid() {
+        validator.validateMeasurementData(validData);
+    }
+
+    @Benchmark
+    public void validateMeasurementDataInvalid(Blackhole blackhole) {
+        try {
+            validator.validateMeasurementData(invalidData);
+        } catch (ValidationException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public ValidationResult validateConverter() {
+        return validator.validate(converter);
+    }
+}
@@ -0,0 +1,109 @@
+package via.sep4.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import via.sep4.datalistener.ESPDataService;
+import via.sep4.datalistener.ESPLineParser;
+import via.sep4.datalistener.ESPReading;
+import via.sep4.datalistener.IngestMetrics;
+import via.sep4.model.PlantExperiment;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.model.SystemConfiguration;
+import via.sep4.processing.DataValidator;
+import via.sep4.repository.InvalidMeasurementRepository;
+import via.sep4.repository.PlantExperimentRepository;
+import via.sep4.repository.SystemConfigurationRepository;
+import via.sep4.service.ExperimentConfigService;
+import via.sep4.service.InvalidMeasurementSink;
+
+/**
+ * Parsing and validation of one ESP line, from raw text to the measurement
+ * that would be queued for the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ESPIngestBenchmark {
+
+    @Param({ "valid", "sensorError", "malformed" })
+    public String lineType;
+
+    private String line;
+    private final LocalDateTime receivedAt = LocalDateTime.of(2025, 5, 1, 12, 0);
+
+    private final ESPLineParser parser = new ESPLineParser();
+    private final ESPReading reading = new ESPReading();
+    private ESPDataService espDataService;
+
+    @Setup
+    public void setUp() {
+        switch (lineType) {
+            case "sensorError":
+                line = "Distance: 27 cm, DHT11 sensor error!, Motion: No";
+                break;
+            case "malformed":
+                line = "Distance: 2.7 cm, Temp: ab.c C, Humidity: 145.0 %, Pressure: 1013";
+                break;
+            default:
+                line = "Distance: 27 cm, Temp: 23.4 C, Humidity: 48.0 %, Motion: Yes";
+                break;
+        }
+
+        PlantExperiment experiment = new PlantExperiment();
+        experiment.setId(1L);
+        SystemConfiguration config = new SystemConfiguration();
+        config.setConfigKey("current_experiment_id");
+        config.setConfigValue("1");
+
+        ExperimentConfigService experimentConfigService = new ExperimentConfigService();
+        BenchmarkStubs.inject(experimentConfigService, "experimentRepository",
+                BenchmarkStubs.repository(PlantExperimentRepository.class,
+                        Map.of("findById", args -> Optional.of(experiment))));
+        BenchmarkStubs.inject(experimentConfigService, "configRepository",
+                BenchmarkStubs.repository(SystemConfigurationRepository.class,
+                        Map.of("findById", args -> Optional.of(config))));
+
+        // never started: once the queue is full, invalid rows are counted and dropped
+        IngestMetrics metrics = new IngestMetrics(new SimpleMeterRegistry());
+        InvalidMeasurementSink invalidMeasurementSink = new InvalidMeasurementSink(
+                BenchmarkStubs.repository(InvalidMeasurementRepository.class, Map.of()),
+                new TransactionTemplate(BenchmarkStubs.transactionManager()), metrics, 1024, 500, 1000, 0);
+
+        espDataService = new ESPDataService();
+        BenchmarkStubs.inject(espDataService, "dataValidator", new DataValidator());
+        BenchmarkStubs.inject(espDataService, "experimentConfigService", experimentConfigService);
+        BenchmarkStubs.inject(espDataService, "invalidMeasurementSink", invalidMeasurementSink);
+        BenchmarkStubs.inject(espDataService, "metrics", metrics);
+    }
+
+    @Benchmark
+    public boolean parseLine() {
+        return parser.parse(line, reading);
+    }
+
+    @Benchmark
+    public PlantMeasurements lineToMeasurement() {
+        return espDataService.toMeasurement(line, receivedAt);
+    }
+}
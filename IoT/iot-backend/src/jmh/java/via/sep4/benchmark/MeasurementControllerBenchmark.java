@@ -0,0 +1,94 @@
+package via.sep4.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import via.sep4.controller.PlantMeasurementController;
+import via.sep4.model.PlantExperiment;
+import via.sep4.processing.DataValidator;
+import via.sep4.repository.InvalidMeasurementRepository;
+import via.sep4.repository.MeasurementRollupRepository;
+import via.sep4.repository.PlantExperimentRepository;
+import via.sep4.repository.PlantMeasurementsRepository;
+import via.sep4.service.MeasurementRollupService;
+
+/**
+ * {@code POST /api/measurements/{experimentId}} without HTTP or a database:
+ * validateSensorData and createMeasurement are private, so they are measured
+ * through addMeasurement with stubbed repositories.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeasurementControllerBenchmark {
+
+    private static final Long EXPERIMENT_ID = 1L;
+
+    @Param({ "valid", "invalid" })
+    public String sensorData;
+
+    private Map<String, String> data;
+    private PlantMeasurementController controller;
+
+    @Setup
+    public void setUp() {
+        data = new HashMap<>();
+        data.put("Luft_temperatur", "22.5");
+        data.put("Luftfugtighed", "45");
+        data.put("Jord_fugtighed", "70");
+        data.put("Lys_højeste_intensitet", "1000");
+        data.put("Lys_laveste_intensitet", "500");
+        data.put("Lys_indstilling", "2");
+        data.put("Lys_gennemsnit", "750");
+        data.put("Afstand_til_Højde", "30");
+        data.put("Vand_tid_fra_sidste", "360");
+        data.put("Vand_mængde", "250");
+        data.put("Vand_frekvens", "8");
+        data.put("Tidsstempel", "2025-05-01T12:00:00");
+        if ("invalid".equals(sensorData)) {
+            data.put("Luft_temperatur", "95.0");
+        }
+
+        PlantExperiment experiment = new PlantExperiment();
+        experiment.setId(EXPERIMENT_ID);
+
+        controller = new PlantMeasurementController();
+        BenchmarkStubs.inject(controller, "experimentRepository",
+                BenchmarkStubs.repository(PlantExperimentRepository.class,
+                        Map.of("findById", args -> Optional.of(experiment))));
+        BenchmarkStubs.inject(controller, "measurementsRepository",
+                BenchmarkStubs.repository(PlantMeasurementsRepository.class, Map.of()));
+        BenchmarkStubs.inject(controller, "invalidMeasurementRepository",
+                BenchmarkStubs.repository(InvalidMeasurementRepository.class, Map.of()));
+        BenchmarkStubs.inject(controller, "dataValidator", new DataValidator());
+        BenchmarkStubs.inject(controller, "rollupService",
+                new MeasurementRollupService(BenchmarkStubs.jdbcTemplate(),
+                        BenchmarkStubs.repository(MeasurementRollupRepository.class, Map.of())));
+        BenchmarkStubs.inject(controller, "transactionTemplate",
+                new TransactionTemplate(BenchmarkStubs.transactionManager()));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> addMeasurement() {
+        return controller.addMeasurement(EXPERIMENT_ID, data);
+    }
+}
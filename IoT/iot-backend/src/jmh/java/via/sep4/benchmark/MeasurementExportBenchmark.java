@@ -0,0 +1,117 @@
+package via.sep4.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import via.sep4.dto.MeasurementView;
+import via.sep4.service.MeasurementExporter;
+
+/**
+ * {@link MeasurementExporter} writers on the same rows as the export
+ * benchmarks in {@link DataConverterBenchmark}, for comparison. Rows come
+ * from an iterator over a small pool, as they would from the database cursor,
+ * and the output is discarded, so peakHeapMb should stay flat as rows grow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class MeasurementExportBenchmark {
+
+    private static final int ROW_POOL_SIZE = 1024;
+
+    @Param({ "1000", "100000", "10000000" })
+    public int rows;
+
+    private List<MeasurementView> pool;
+    private MeasurementExporter exporter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = exportRows(ROW_POOL_SIZE);
+        exporter = new MeasurementExporter(null, null, new ObjectMapper(), 65536);
+    }
+
+    @Benchmark
+    public void exportCsv(DataConverterBenchmark.RowCounters counters) throws IOException {
+        exporter.writeCsv(rows(), OutputStream.nullOutputStream());
+        counters.rowsProcessed += rows;
+    }
+
+    @Benchmark
+    public void exportJson(DataConverterBenchmark.RowCounters counters) throws IOException {
+        exporter.writeJson(rows(), OutputStream.nullOutputStream());
+        counters.rowsProcessed += rows;
+    }
+
+    @Benchmark
+    public void exportNdjson(DataConverterBenchmark.RowCounters counters) throws IOException {
+        exporter.writeNdjson(rows(), OutputStream.nullOutputStream());
+        counters.rowsProcessed += rows;
+    }
+
+    @Benchmark
+    public void exportParquet(DataConverterBenchmark.RowCounters counters) throws IOException {
+        exporter.writeParquet(rows(), OutputStream.nullOutputStream());
+        counters.rowsProcessed += rows;
+    }
+
+    @Benchmark
+    public void exportArrow(DataConverterBenchmark.RowCounters counters) throws IOException {
+        exporter.writeArrow(rows(), OutputStream.nullOutputStream());
+        counters.rowsProcessed += rows;
+    }
+
+    private Iterator<MeasurementView> rows() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < rows;
+            }
+
+            @Override
+            public MeasurementView next() {
+                if (next >= rows) {
+                    throw new NoSuchElementException();
+                }
+                return pool.get(next++ % ROW_POOL_SIZE);
+            }
+        };
+    }
+
+    private static List<MeasurementView> exportRows(int count) {
+        List<MeasurementView> rows = new ArrayList<>(count);
+        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 1, 0, 0);
+        for (int i = 0; i < count; i++) {
+            rows.add(new MeasurementView((long) i, 18 + (i % 90) / 10.0, 40.0 + i % 30, 55.0 + i % 35,
+                    i % 3 == 0 ? "AUTO" : "MANUAL", 900.0 + i % 200, 300.0 + i % 150, 650.0 + i % 100,
+                    20.0 + i % 40, 300.0 + i % 120, 200.0 + i % 100, 6.0 + i % 6, timestamp.plusMinutes(i)));
+        }
+        return rows;
+    }
+}
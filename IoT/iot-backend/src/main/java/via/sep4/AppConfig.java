@@ -43,6 +43,7 @@ public class AppConfig implements WebMvcConfigurer {
                 .allowedOrigins("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Cursor", "Link")
                 .maxAge(3600);
     }
 
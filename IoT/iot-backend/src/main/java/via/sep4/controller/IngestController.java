@@ -0,0 +1,101 @@
+package via.sep4.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import via.sep4.datalistener.IngestJournal;
+import via.sep4.datalistener.IngestQueue;
+import via.sep4.datalistener.JournalReplayer;
+import via.sep4.service.InvalidMeasurementSink;
+import via.sep4.service.MeasurementWriteBehindService;
+
+@RestController
+@RequestMapping("/api/ingest")
+public class IngestController {
+
+    @Autowired
+    private IngestQueue ingestQueue;
+
+    @Autowired
+    private MeasurementWriteBehindService measurementWriteBehind;
+
+    @Autowired
+    private InvalidMeasurementSink invalidMeasurementSink;
+
+    @Autowired
+    private IngestJournal ingestJournal;
+
+    @Autowired
+    private JournalReplayer journalReplayer;
+
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getIngestStatus() {
+        Map<String, Object> queue = new LinkedHashMap<>();
+        queue.put("queueDepth", ingestQueue.getQueueDepth());
+        queue.put("capacity", ingestQueue.getCapacity());
+        queue.put("policy", ingestQueue.getPolicy());
+        queue.put("overloaded", ingestQueue.isOverloaded());
+        queue.put("acceptedLines", ingestQueue.getAcceptedLines());
+        queue.put("droppedLines", ingestQueue.getDroppedLines());
+        queue.put("processedLines", ingestQueue.getProcessedLines());
+
+        Map<String, Object> writeBehind = new LinkedHashMap<>();
+        writeBehind.put("queueDepth", measurementWriteBehind.getQueueDepth());
+        writeBehind.put("queueCapacity", measurementWriteBehind.getQueueCapacity());
+        writeBehind.put("flushSize", measurementWriteBehind.getFlushSize());
+        writeBehind.put("flushIntervalMs", measurementWriteBehind.getFlushIntervalMs());
+        writeBehind.put("enqueuedRows", measurementWriteBehind.getEnqueuedRows());
+        writeBehind.put("flushedRows", measurementWriteBehind.getFlushedRows());
+        writeBehind.put("failedRows", measurementWriteBehind.getFailedRows());
+        writeBehind.put("flushCount", measurementWriteBehind.getFlushCount());
+        writeBehind.put("lastFlushSize", measurementWriteBehind.getLastFlushSize());
+        writeBehind.put("lastFlushDurationMs", measurementWriteBehind.getLastFlushDurationMs());
+
+        Map<String, Object> invalidSink = new LinkedHashMap<>();
+        invalidSink.put("queueDepth", invalidMeasurementSink.getQueueDepth());
+        invalidSink.put("collapseWindowMs", invalidMeasurementSink.getCollapseWindowMs());
+        invalidSink.put("recordedErrors", invalidMeasurementSink.getRecordedErrors());
+        invalidSink.put("droppedErrors", invalidMeasurementSink.getDroppedErrors());
+        invalidSink.put("collapsedErrors", invalidMeasurementSink.getCollapsedErrors());
+        invalidSink.put("flushedRows", invalidMeasurementSink.getFlushedRows());
+        invalidSink.put("failedRows", invalidMeasurementSink.getFailedRows());
+
+        Map<String, Object> journal = new LinkedHashMap<>();
+        journal.put("enabled", ingestJournal.isEnabled());
+        if (ingestJournal.isEnabled()) {
+            journal.put("lastSequence", ingestJournal.getLastSequence());
+            journal.put("checkpoint", ingestJournal.getCheckpoint());
+            journal.put("firstRetainedSequence", ingestJournal.getFirstRetainedSequence());
+            journal.put("segmentCount", ingestJournal.getSegmentCount());
+            journal.put("replayLag", journalReplayer.getLag());
+            journal.put("replayedEntries", journalReplayer.getReplayedEntries());
+            journal.put("failedBatches", journalReplayer.getFailedBatches());
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ingestQueue", queue);
+        status.put("writeBehind", writeBehind);
+        status.put("invalidMeasurements", invalidSink);
+        status.put("journal", journal);
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/journal/replay")
+    public ResponseEntity<Map<String, Object>> replayJournal(@RequestParam long fromSequence) {
+        if (!ingestJournal.isEnabled()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Ingest journal is not enabled"));
+        }
+
+        journalReplayer.replayFrom(fromSequence);
+        return ResponseEntity.accepted().body(Map.of("fromSequence",
+                Math.max(fromSequence, ingestJournal.getFirstRetainedSequence())));
+    }
+}
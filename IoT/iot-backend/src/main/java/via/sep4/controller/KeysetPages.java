@@ -0,0 +1,70 @@
+package via.sep4.controller;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import via.sep4.dto.PageCursor;
+
+/**
+ * Shared handling of cursor-paginated listings. A page is a JSON array; when
+ * more rows follow, the response carries the cursor of the next page in
+ * X-Next-Cursor and the URL of the next page in a Link header.
+ */
+final class KeysetPages {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_LIMIT = 1000;
+    static final int MAX_LIMIT = 10000;
+
+    // stand-ins for an open range, inside what every supported database can store
+    static final LocalDateTime EARLIEST = LocalDateTime.of(1, 1, 1, 0, 0);
+    static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private KeysetPages() {
+    }
+
+    static int limit(int requested) {
+        return Math.min(Math.max(requested, 1), MAX_LIMIT);
+    }
+
+    /**
+     * @return the position to continue from: the cursor if given, else before
+     *         the start of the range
+     */
+    static PageCursor after(String cursor, LocalDateTime startDate) {
+        if (cursor != null) {
+            return PageCursor.decode(cursor);
+        }
+        return PageCursor.before(startDate != null ? startDate : EARLIEST);
+    }
+
+    /**
+     * One row more than the limit is fetched, so whether another page follows
+     * is known without a count query.
+     */
+    static Pageable fetch(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    static <T> ResponseEntity<List<T>> response(List<T> rows, int limit, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return ResponseEntity.ok(rows);
+        }
+
+        List<T> page = rows.subList(0, limit);
+        String next = cursorOf.apply(page.get(limit - 1)).encode();
+        String nextUrl = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", next)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, next)
+                .header(HttpHeaders.LINK, "<" + nextUrl + ">; rel=\"next\"")
+                .body(page);
+    }
+}
@@ -1,13 +1,19 @@
 package via.sep4.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -19,17 +25,28 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import via.sep4.repository.PlantExperimentRepository;
 import via.sep4.repository.PlantMeasurementsRepository;
 import via.sep4.service.ExperimentConfigService;
+import via.sep4.service.ExportCache;
+import via.sep4.service.ExportCompression;
+import via.sep4.service.ExportCompressor;
+import via.sep4.service.MeasurementExporter;
+import via.sep4.service.MeasurementRollupService;
+import via.sep4.dto.ExperimentSummary;
+import via.sep4.dto.MeasurementView;
+import via.sep4.dto.PageCursor;
+import via.sep4.dto.RollupBucket;
 import via.sep4.exceptions.ResourceNotFoundException;
 import via.sep4.model.PlantExperiment;
-import via.sep4.model.PlantMeasurements;
-import via.sep4.processing.DataConverter;
+import via.sep4.model.RollupGranularity;
 
 @RestController
 @RequestMapping("/api/experiments")
@@ -46,12 +63,29 @@ public class PlantExperimentController {
     @Autowired
     private ExperimentConfigService experimentConfigService;
 
+    @Autowired
+    private MeasurementRollupService rollupService;
+
+    @Autowired
+    private MeasurementExporter measurementExporter;
+
+    @Autowired
+    private ExportCompressor exportCompressor;
+
+    @Autowired
+    private ExportCache exportCache;
+
     @GetMapping
     public ResponseEntity<List<PlantExperiment>> getAllExperiments() {
         List<PlantExperiment> experiments = experimentRepository.findAll();
         return ResponseEntity.ok(experiments);
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<List<ExperimentSummary>> getExperimentSummaries() {
+        return ResponseEntity.ok(experimentRepository.findSummaries());
+    }
+
     @GetMapping("/{experimentId}")
     public ResponseEntity<PlantExperiment> getExperimentById(@PathVariable Long experimentId) {
         Optional<PlantExperiment> experiment = experimentRepository.findById(experimentId);
@@ -73,170 +107,226 @@ public class PlantExperimentController {
     }
 
     @GetMapping("/{experimentId}/measurements")
-    public ResponseEntity<List<PlantMeasurements>> getExperimentMeasurements(
+    public ResponseEntity<List<MeasurementView>> getExperimentMeasurements(
             @PathVariable Long experimentId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + KeysetPages.DEFAULT_LIMIT) int limit,
+            WebRequest request) {
 
         if (!experimentRepository.existsById(experimentId)) {
             throw new ResourceNotFoundException("Experiment not found with id: " + experimentId);
         }
-
-        List<PlantMeasurements> measurements;
-        if (startDate != null && endDate != null) {
-            measurements = measurementsRepository.findByExperimentIdAndTimestampBetween(experimentId, startDate,
-                    endDate);
-        } else {
-            measurements = measurementsRepository.findByExperimentId(experimentId);
+        String etag = etag(experimentId, measurementsVersion(experimentId),
+                startDate + "/" + endDate + "/" + cursor + "/" + limit);
+        if (request.checkNotModified(etag)) {
+            return null;
         }
 
-        return ResponseEntity.ok(measurements);
+        int pageSize = KeysetPages.limit(limit);
+        PageCursor after = KeysetPages.after(cursor, startDate);
+        List<MeasurementView> measurements = measurementsRepository.findViewPage(experimentId, after.timestamp(),
+                after.id(), endDate != null ? endDate : KeysetPages.LATEST, KeysetPages.fetch(pageSize));
+        return KeysetPages.response(measurements, pageSize, m -> new PageCursor(m.timestamp(), m.id()));
     }
 
     @GetMapping("/{experimentId}/measurements/latest")
-    public ResponseEntity<List<PlantMeasurements>> getLatestMeasurements(@PathVariable Long experimentId) {
+    public ResponseEntity<List<MeasurementView>> getLatestMeasurements(@PathVariable Long experimentId,
+            WebRequest request) {
         if (!experimentRepository.existsById(experimentId)) {
             throw new ResourceNotFoundException("Experiment not found with id: " + experimentId);
         }
+        if (request.checkNotModified(etag(experimentId, measurementsVersion(experimentId), "latest"))) {
+            return null;
+        }
 
-        List<PlantMeasurements> measurements = measurementsRepository
-                .findTop10ByExperimentIdOrderByTimestampDesc(experimentId);
+        List<MeasurementView> measurements = measurementsRepository
+                .findLatestViewsByExperimentId(experimentId, PageRequest.of(0, 10));
 
         return ResponseEntity.ok(measurements);
     }
 
-    @GetMapping("/{experimentId}/export/csv")
-    public ResponseEntity<String> exportToCsv(
+    /**
+     * Per-bucket min, max, average and last value of every sensor column. Unless
+     * a granularity is given, the finest one that keeps the range within
+     * maxPoints buckets is used.
+     */
+    @GetMapping("/{experimentId}/measurements/rollups")
+    public ResponseEntity<?> getMeasurementRollups(
             @PathVariable Long experimentId,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) RollupGranularity granularity,
+            @RequestParam(defaultValue = "1000") int maxPoints) {
 
         if (!experimentRepository.existsById(experimentId)) {
             throw new ResourceNotFoundException("Experiment not found with id: " + experimentId);
         }
-
-        List<PlantMeasurements> measurements;
-        if (startDate != null && endDate != null) {
-            measurements = measurementsRepository.findByExperimentIdAndTimestampBetween(experimentId, startDate,
-                    endDate);
-        } else {
-            measurements = measurementsRepository.findByExperimentId(experimentId);
+        if (endDate.isBefore(startDate)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "endDate must not be before startDate"));
         }
 
-        if (measurements.isEmpty()) {
-            return ResponseEntity.noContent().build();
-        }
+        RollupGranularity chosen = granularity != null ? granularity
+                : rollupService.chooseGranularity(startDate, endDate, maxPoints);
+        List<RollupBucket> buckets = rollupService.findBuckets(experimentId, chosen, startDate, endDate);
 
-        DataConverter converter = new DataConverter(true);
-
-        List<String> headers = List.of(
-                "timestamp", "luftTemperatur", "luftfugtighed", "jordFugtighed",
-                "lysIndstilling", "lysHøjesteIntensitet", "lysLavesteIntensitet", "lysGennemsnit",
-                "afstandTilHøjde", "vandTidFraSidste", "vandMængde", "vandFrekvens");
-        converter.getHeaders().addAll(headers);
-
-        for (PlantMeasurements m : measurements) {
-            Map<String, String> row = new java.util.HashMap<>();
-            row.put("timestamp", m.getTimestamp().toString());
-            row.put("luftTemperatur", String.valueOf(m.getLuftTemperatur()));
-            row.put("luftfugtighed", String.valueOf(m.getLuftfugtighed()));
-            row.put("jordFugtighed", String.valueOf(m.getJordFugtighed()));
-            row.put("lysIndstilling", m.getLysIndstilling() != null ? m.getLysIndstilling() : "");
-            row.put("lysHøjesteIntensitet", String.valueOf(m.getLysHøjesteIntensitet()));
-            row.put("lysLavesteIntensitet", String.valueOf(m.getLysLavesteIntensitet()));
-            row.put("lysGennemsnit", String.valueOf(m.getLysGennemsnit()));
-            row.put("afstandTilHøjde", String.valueOf(m.getAfstandTilHøjde()));
-            row.put("vandTidFraSidste", String.valueOf(m.getVandTidFraSidste()));
-            row.put("vandMængde", String.valueOf(m.getVandMængde()));
-            row.put("vandFrekvens", String.valueOf(m.getVandFrekvens()));
-
-            converter.getData().add(row);
-        }
+        return ResponseEntity.ok(Map.of("granularity", chosen, "buckets", buckets));
+    }
 
-        try {
-            java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("experiment_" + experimentId, ".csv");
-            converter.exportToCsv(tempFile.toString(), ',');
-            String csvContent = new String(java.nio.file.Files.readAllBytes(tempFile));
-            java.nio.file.Files.delete(tempFile);
-
-            HttpHeaders httpHeaders = new HttpHeaders();
-            httpHeaders.setContentType(MediaType.TEXT_PLAIN);
-            httpHeaders.set(HttpHeaders.CONTENT_DISPOSITION,
-                    "attachment; filename=experiment_" + experimentId + "_data.csv");
-
-            return new ResponseEntity<>(csvContent, httpHeaders, HttpStatus.OK);
-        } catch (java.io.IOException e) {
-            logger.error("Error generating CSV file", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error generating CSV: " + e.getMessage());
-        }
+    @GetMapping("/{experimentId}/export/csv")
+    public ResponseEntity<StreamingResponseBody> exportToCsv(
+            @PathVariable Long experimentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        return export(experimentId, startDate, endDate, ExportFormat.CSV, exportCompressor.negotiate(acceptEncoding),
+                false, request);
     }
 
     @GetMapping("/{experimentId}/export/json")
-    public ResponseEntity<String> exportToJson(
+    public ResponseEntity<StreamingResponseBody> exportToJson(
             @PathVariable Long experimentId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        return export(experimentId, startDate, endDate, ExportFormat.JSON, exportCompressor.negotiate(acceptEncoding),
+                false, request);
+    }
 
-        if (!experimentRepository.existsById(experimentId)) {
-            throw new ResourceNotFoundException("Experiment not found with id: " + experimentId);
-        }
+    @GetMapping("/{experimentId}/export/ndjson")
+    public ResponseEntity<StreamingResponseBody> exportToNdjson(
+            @PathVariable Long experimentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        return export(experimentId, startDate, endDate, ExportFormat.NDJSON,
+                exportCompressor.negotiate(acceptEncoding), false, request);
+    }
 
-        List<PlantMeasurements> measurements;
-        if (startDate != null && endDate != null) {
-            measurements = measurementsRepository.findByExperimentIdAndTimestampBetween(experimentId, startDate,
-                    endDate);
-        } else {
-            measurements = measurementsRepository.findByExperimentId(experimentId);
-        }
+    /**
+     * Parquet file with typed columns. Its pages are compressed already, so it
+     * is never sent with a Content-Encoding.
+     */
+    @GetMapping("/{experimentId}/export/parquet")
+    public ResponseEntity<StreamingResponseBody> exportToParquet(
+            @PathVariable Long experimentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            WebRequest request) {
+        return export(experimentId, startDate, endDate, ExportFormat.PARQUET, ExportCompression.NONE, false,
+                request);
+    }
+
+    @GetMapping("/{experimentId}/export/arrow")
+    public ResponseEntity<StreamingResponseBody> exportToArrow(
+            @PathVariable Long experimentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        return export(experimentId, startDate, endDate, ExportFormat.ARROW, exportCompressor.negotiate(acceptEncoding),
+                false, request);
+    }
+
+    /**
+     * Compressed file download for archiving, e.g. export/csv.gz or
+     * export/ndjson.zst. Unlike the endpoints above, the compression is part of
+     * the file rather than a Content-Encoding, so clients save it as is.
+     */
+    @GetMapping("/{experimentId}/export/{format:csv|json|ndjson|arrow}.{extension:gz|zst}")
+    public ResponseEntity<StreamingResponseBody> exportCompressed(
+            @PathVariable Long experimentId,
+            @PathVariable String format,
+            @PathVariable String extension,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            WebRequest request) {
+        return export(experimentId, startDate, endDate, ExportFormat.valueOf(format.toUpperCase(Locale.ROOT)),
+                ExportCompression.fromExtension(extension), true, request);
+    }
 
-        if (measurements.isEmpty()) {
+    private ResponseEntity<StreamingResponseBody> export(Long experimentId, LocalDateTime startDate,
+            LocalDateTime endDate, ExportFormat format, ExportCompression compression, boolean download,
+            WebRequest request) {
+        PlantExperiment experiment = experimentRepository.findById(experimentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Experiment not found with id: " + experimentId));
+
+        LocalDateTime start = startDate != null ? startDate : KeysetPages.EARLIEST;
+        LocalDateTime end = endDate != null ? endDate : KeysetPages.LATEST;
+        // a download and a Content-Encoding of the same compression have the same bytes
+        String variant = start + "/" + end + "/" + format.extension + "/" + compression.getContentCoding();
+        long version = measurementsVersion(experimentId);
+        if (request.checkNotModified(etag(experimentId, version, variant))) {
+            return null;
+        }
+        if (!measurementExporter.hasMeasurements(experimentId, start, end)) {
             return ResponseEntity.noContent().build();
         }
 
-        DataConverter converter = new DataConverter(true);
-
-        List<String> headers = List.of(
-                "timestamp", "luftTemperatur", "luftfugtighed", "jordFugtighed",
-                "lysIndstilling", "lysHøjesteIntensitet", "lysLavesteIntensitet", "lysGennemsnit",
-                "afstandTilHøjde", "vandTidFraSidste", "vandMængde", "vandFrekvens");
-        converter.getHeaders().addAll(headers);
-
-        for (PlantMeasurements m : measurements) {
-            Map<String, String> row = new java.util.HashMap<>();
-            row.put("timestamp", m.getTimestamp().toString());
-            row.put("luftTemperatur", String.valueOf(m.getLuftTemperatur()));
-            row.put("luftfugtighed", String.valueOf(m.getLuftfugtighed()));
-            row.put("jordFugtighed", String.valueOf(m.getJordFugtighed()));
-            row.put("lysIndstilling", m.getLysIndstilling());
-            row.put("lysHøjesteIntensitet", String.valueOf(m.getLysHøjesteIntensitet()));
-            row.put("lysLavesteIntensitet", String.valueOf(m.getLysLavesteIntensitet()));
-            row.put("lysGennemsnit", String.valueOf(m.getLysGennemsnit()));
-            row.put("afstandTilHøjde", String.valueOf(m.getAfstandTilHøjde()));
-            row.put("vandTidFraSidste", String.valueOf(m.getVandTidFraSidste()));
-            row.put("vandMængde", String.valueOf(m.getVandMængde()));
-            row.put("vandFrekvens", String.valueOf(m.getVandFrekvens()));
-
-            converter.getData().add(row);
+        String filename = "experiment_" + experimentId + "_data." + format.extension;
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if (download) {
+            httpHeaders.setContentType(compression.getFileType());
+            filename += "." + compression.getExtension();
+        } else {
+            httpHeaders.setContentType(format.contentType);
+            if (format.compressible) {
+                httpHeaders.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+            }
+            if (compression != ExportCompression.NONE) {
+                httpHeaders.set(HttpHeaders.CONTENT_ENCODING, compression.getContentCoding());
+            }
         }
-
-        try {
-            java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("experiment_" + experimentId, ".json");
-            converter.exportToJson(tempFile.toString());
-            String jsonContent = new String(java.nio.file.Files.readAllBytes(tempFile));
-            java.nio.file.Files.delete(tempFile);
-
-            HttpHeaders httpHeaders = new HttpHeaders();
-            httpHeaders.setContentType(MediaType.APPLICATION_JSON);
-            httpHeaders.set(HttpHeaders.CONTENT_DISPOSITION,
-                    "attachment; filename=experiment_" + experimentId + "_data.json");
-
-            return new ResponseEntity<>(jsonContent, httpHeaders, HttpStatus.OK);
-        } catch (java.io.IOException e) {
-            logger.error("Error generating JSON file", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error generating JSON: " + e.getMessage());
+        httpHeaders.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
+
+        ExportWriter writer = switch (format) {
+            case CSV -> measurementExporter::writeCsv;
+            case JSON -> measurementExporter::writeJson;
+            case NDJSON -> measurementExporter::writeNdjson;
+            case PARQUET -> measurementExporter::writeParquet;
+            case ARROW -> measurementExporter::writeArrow;
+        };
+
+        // runs on an async request thread after this method returns
+        StreamingResponseBody body = out -> {
+            try (OutputStream compressed = exportCompressor.compress(compression, out)) {
+                writer.write(experimentId, start, end, compressed);
+            }
+        };
+        if (isFinished(experiment)) {
+            StreamingResponseBody cached = exportCache.find(experimentId, version, variant);
+            body = cached != null ? cached : exportCache.store(experimentId, version, variant, body);
         }
+        return new ResponseEntity<>(body, httpHeaders, HttpStatus.OK);
+    }
+
+    /**
+     * Bumped in every transaction that stores measurements of the experiment.
+     * Read before the data, so a response is never older than its version.
+     */
+    private long measurementsVersion(Long experimentId) {
+        return rollupService.getVersion(experimentId);
+    }
+
+    /**
+     * Tags a representation of an experiment's measurements with the
+     * experiment's version and a hash of the range, page, format and encoding
+     * it covers, the same hash the export cache names its entries by.
+     */
+    private static String etag(Long experimentId, long version, String variant) {
+        return "\"" + experimentId + "-" + version + "-" + ExportCache.hash(variant) + "\"";
+    }
+
+    /**
+     * No more measurements are expected once the end date has passed, so its
+     * exports can be kept.
+     */
+    private static boolean isFinished(PlantExperiment experiment) {
+        return experiment.getEndDate() != null && experiment.getEndDate().isBefore(LocalDate.now());
     }
 
     @PostMapping
@@ -254,6 +344,7 @@ public class PlantExperimentController {
 
         experiment.setId(id);
         PlantExperiment updatedExperiment = experimentRepository.save(experiment);
+        experimentConfigService.reload();
         return ResponseEntity.ok(updatedExperiment);
     }
 
@@ -301,6 +392,33 @@ public class PlantExperimentController {
         }
 
         experimentRepository.deleteById(id);
+        rollupService.deleteForExperiment(id);
+        exportCache.evict(id);
+        experimentConfigService.reload();
         return ResponseEntity.noContent().build();
     }
+
+    private enum ExportFormat {
+        CSV(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8), "csv", true),
+        JSON(MediaType.APPLICATION_JSON, "json", true),
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson", true),
+        PARQUET(MediaType.parseMediaType("application/vnd.apache.parquet"), "parquet", false),
+        ARROW(MediaType.parseMediaType("application/vnd.apache.arrow.stream"), "arrows", true);
+
+        private final MediaType contentType;
+        private final String extension;
+        private final boolean compressible;
+
+        ExportFormat(MediaType contentType, String extension, boolean compressible) {
+            this.contentType = contentType;
+            this.extension = extension;
+            this.compressible = compressible;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExportWriter {
+        void write(Long experimentId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out)
+                throws IOException;
+    }
 }
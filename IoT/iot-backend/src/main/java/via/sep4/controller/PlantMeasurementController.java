@@ -1,9 +1,13 @@
 package via.sep4.controller;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -11,6 +15,7 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -21,8 +26,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import via.sep4.dto.PageCursor;
 import via.sep4.exceptions.ResourceNotFoundException;
 import via.sep4.exceptions.ValidationException;
 import via.sep4.model.InvalidMeasurement;
@@ -33,6 +40,8 @@ import via.sep4.processing.DataValidator;
 import via.sep4.repository.InvalidMeasurementRepository;
 import via.sep4.repository.PlantExperimentRepository;
 import via.sep4.repository.PlantMeasurementsRepository;
+import via.sep4.service.MeasurementBulkLoader;
+import via.sep4.service.MeasurementRollupService;
 
 @RestController
 @RequestMapping("/api/measurements")
@@ -52,14 +61,30 @@ public class PlantMeasurementController {
     @Autowired
     private DataValidator dataValidator;
 
+    @Autowired
+    private MeasurementBulkLoader bulkLoader;
+
+    @Autowired
+    private MeasurementRollupService rollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @GetMapping("/{experimentId}/invalid")
-    public ResponseEntity<List<InvalidMeasurement>> getInvalidMeasurements(@PathVariable Long experimentId) {
+    public ResponseEntity<List<InvalidMeasurement>> getInvalidMeasurements(
+            @PathVariable Long experimentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + KeysetPages.DEFAULT_LIMIT) int limit) {
         if (!experimentRepository.existsById(experimentId)) {
             throw new ResourceNotFoundException("Experiment not found with id: " + experimentId);
         }
 
-        List<InvalidMeasurement> invalidMeasurements = invalidMeasurementRepository.findByExperimentId(experimentId);
-        return ResponseEntity.ok(invalidMeasurements);
+        int pageSize = KeysetPages.limit(limit);
+        PageCursor after = KeysetPages.after(cursor, null);
+        List<InvalidMeasurement> invalidMeasurements = invalidMeasurementRepository.findPage(experimentId,
+                after.timestamp(), after.id(), KeysetPages.fetch(pageSize));
+        return KeysetPages.response(invalidMeasurements, pageSize,
+                invalid -> new PageCursor(invalid.getReceivedAt(), invalid.getId()));
     }
 
     @GetMapping("/invalid/{id}")
@@ -91,7 +116,11 @@ public class PlantMeasurementController {
                 validateSensorData(sensorData);
 
                 PlantMeasurements measurement = createMeasurement(experiment, sensorData);
-                PlantMeasurements savedMeasurement = measurementsRepository.save(measurement);
+                PlantMeasurements savedMeasurement = transactionTemplate.execute(status -> {
+                    PlantMeasurements saved = measurementsRepository.save(measurement);
+                    rollupService.record(List.of(saved));
+                    return saved;
+                });
 
                 logger.info("Successfully saved measurement for experiment ID: {}", experimentId);
                 return ResponseEntity.status(HttpStatus.CREATED).body(savedMeasurement);
@@ -132,51 +161,44 @@ public class PlantMeasurementController {
             PlantExperiment experiment = experimentRepository.findById(experimentId)
                     .orElseThrow(() -> new ResourceNotFoundException("Experiment not found with id: " + experimentId));
 
-            String content = new String(file.getBytes(), StandardCharsets.UTF_8);
-            DataConverter converter = new DataConverter(hasHeaders);
-
-            if (!converter.parseInput(content, delimiter)) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Failed to parse CSV data"));
-            }
+            List<String> errors = new java.util.ArrayList<>();
 
-            try {
-                dataValidator.validateWithException(converter);
-            } catch (ValidationException e) {
-                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-            }
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+                UploadedRows rows = new UploadedRows(reader, experiment, hasHeaders, delimiter, errors);
 
-            int totalRows = converter.getRows();
-            int successCount = 0;
-            List<String> errors = new java.util.ArrayList<>();
+                if (!rows.hasNext()) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Failed to parse CSV data"));
+                }
 
-            for (int i = 0; i < totalRows; i++) {
+                long successCount = 0;
                 try {
-                    Map<String, String> rowData = converter.getData().get(i);
-                    PlantMeasurements measurement = createMeasurement(experiment, rowData);
-                    measurementsRepository.save(measurement);
-                    successCount++;
-                } catch (Exception e) {
-                    String error = String.format("Row %d: %s", i + 1, e.getMessage());
+                    successCount = bulkLoader.load(rows);
+                } catch (DataAccessException e) {
+                    String error = "Failed to store rows: " + e.getMessage();
                     errors.add(error);
-                    logger.error(error);
+                    logger.error(error, e);
                 }
-            }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("totalRows", totalRows);
-            response.put("successCount", successCount);
-            response.put("status", successCount == totalRows ? "success" : "partial");
+                int totalRows = rows.getRowsRead();
+                Map<String, Object> response = new HashMap<>();
+                response.put("totalRows", totalRows);
+                response.put("successCount", successCount);
+                response.put("status", successCount == totalRows ? "success" : "partial");
 
-            if (!errors.isEmpty()) {
-                response.put("errors", errors);
-            }
+                if (!errors.isEmpty()) {
+                    response.put("errors", errors);
+                }
 
-            return ResponseEntity.ok(response);
+                return ResponseEntity.ok(response);
+            } catch (ValidationException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
 
         } catch (ResourceNotFoundException e) {
             logger.error("Resource not found: {}", e.getMessage());
             return ResponseEntity.notFound().build();
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             logger.error("Error reading file", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error reading file: " + e.getMessage()));
@@ -294,4 +316,107 @@ public class PlantMeasurementController {
             return 0.0;
         }
     }
+
+    /**
+     * Reads an uploaded CSV file a chunk of lines at a time. Every chunk is
+     * parsed by {@link DataConverter} and validated as a whole before any of
+     * its rows is handed out, so uploads are not limited to what fits in a
+     * single {@link DataConverter}.
+     */
+    private class UploadedRows implements Iterator<PlantMeasurements> {
+        // DataConverter keeps at most 1000 rows per parse
+        private static final int CHUNK_LINES = 1000;
+
+        private final BufferedReader reader;
+        private final PlantExperiment experiment;
+        private final boolean hasHeaders;
+        private final char delimiter;
+        private final List<String> errors;
+        private final String header;
+
+        private Iterator<PlantMeasurements> chunk = java.util.Collections.emptyIterator();
+        private int rowsRead;
+
+        UploadedRows(BufferedReader reader, PlantExperiment experiment, boolean hasHeaders, char delimiter,
+                List<String> errors) throws IOException {
+            this.reader = reader;
+            this.experiment = experiment;
+            this.hasHeaders = hasHeaders;
+            this.delimiter = delimiter;
+            this.errors = errors;
+            this.header = hasHeaders ? reader.readLine() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!chunk.hasNext()) {
+                if (!readChunk()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public PlantMeasurements next() {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            return chunk.next();
+        }
+
+        int getRowsRead() {
+            return rowsRead;
+        }
+
+        private boolean readChunk() {
+            StringBuilder content = new StringBuilder();
+            if (header != null) {
+                content.append(header).append('\n');
+            }
+
+            int firstRow = rowsRead + 1;
+            int lines = 0;
+            try {
+                String line;
+                while (lines < CHUNK_LINES && (line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        content.append(line).append('\n');
+                        lines++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            if (lines == 0) {
+                return false;
+            }
+            rowsRead += lines;
+
+            DataConverter converter = new DataConverter(hasHeaders);
+            if (!converter.parseInput(content.toString(), delimiter)) {
+                throw new ValidationException(String.format("Rows %d-%d: failed to parse CSV data", firstRow, rowsRead));
+            }
+
+            try {
+                dataValidator.validateWithException(converter);
+            } catch (ValidationException e) {
+                throw new ValidationException(String.format("Rows %d-%d: %s", firstRow, rowsRead, e.getMessage()));
+            }
+
+            List<PlantMeasurements> measurements = new java.util.ArrayList<>(converter.getRows());
+            for (int i = 0; i < converter.getRows(); i++) {
+                try {
+                    measurements.add(createMeasurement(experiment, converter.getData().get(i)));
+                } catch (Exception e) {
+                    String error = String.format("Row %d: %s", firstRow + i, e.getMessage());
+                    errors.add(error);
+                    logger.error(error);
+                }
+            }
+            chunk = measurements.iterator();
+            return true;
+        }
+    }
 }
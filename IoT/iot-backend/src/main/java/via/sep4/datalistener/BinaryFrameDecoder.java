@@ -0,0 +1,143 @@
+package via.sep4.datalistener;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import via.sep4.datalistener.ESPReading.Field;
+
+/**
+ * Decoder for the compact binary framing a board can switch to by sending
+ * {@link ConnectionDecoder#BINARY_HANDSHAKE} when it connects. After the
+ * handshake the connection carries frames of the form (big-endian):
+ *
+ * <pre>
+ * u16 length           bytes following this field
+ * u32 device id
+ * u32 sequence         sequence number of the first reading in the frame
+ * u8  reading count
+ * count x 10 bytes:
+ *   u16 age            seconds between taking the reading and sending the frame
+ *   u16 distance       cm
+ *   s16 temperature    tenths of a degree C
+ *   u16 humidity       tenths of a percent
+ *   u8  soil moisture  percent, 0xFF when the board has no soil sensor
+ *   u8  flags          bit 0 motion, bit 1 DHT11 sensor error
+ * </pre>
+ *
+ * One instance is kept per connection; it buffers at most one partial frame.
+ */
+public class BinaryFrameDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(BinaryFrameDecoder.class);
+
+    public static final int HEADER_SIZE = 9;
+    public static final int READING_SIZE = 10;
+    public static final int MAX_READINGS = 255;
+    public static final int MAX_FRAME_LENGTH = HEADER_SIZE + MAX_READINGS * READING_SIZE;
+
+    static final int SOIL_ABSENT = 0xFF;
+    static final int FLAG_MOTION = 0x01;
+    static final int FLAG_SENSOR_ERROR = 0x02;
+
+    private final byte[] frame = new byte[MAX_FRAME_LENGTH];
+    private int lengthBytesRead = 0;
+    private int frameLength = 0;
+    private int frameBytesRead = 0;
+    private long expectedSequence = -1;
+
+    /**
+     * Consumes all remaining bytes of the buffer and hands every reading of
+     * every complete frame to the consumer.
+     *
+     * @throws ProtocolException if a frame is malformed; the connection should
+     *                           be closed since framing cannot be recovered
+     */
+    public void feed(ByteBuffer buffer, Consumer<IngestRecord> consumer) throws ProtocolException {
+        while (buffer.hasRemaining()) {
+            if (lengthBytesRead < 2) {
+                frameLength = (frameLength << 8) | (buffer.get() & 0xFF);
+                lengthBytesRead++;
+                if (lengthBytesRead == 2) {
+                    checkLength(frameLength);
+                }
+                continue;
+            }
+
+            int count = Math.min(buffer.remaining(), frameLength - frameBytesRead);
+            buffer.get(frame, frameBytesRead, count);
+            frameBytesRead += count;
+
+            if (frameBytesRead == frameLength) {
+                decodeFrame(consumer);
+                lengthBytesRead = 0;
+                frameLength = 0;
+                frameBytesRead = 0;
+            }
+        }
+    }
+
+    private void checkLength(int length) throws ProtocolException {
+        if (length < HEADER_SIZE || length > MAX_FRAME_LENGTH || (length - HEADER_SIZE) % READING_SIZE != 0) {
+            throw new ProtocolException("Invalid binary frame length: " + length);
+        }
+    }
+
+    private void decodeFrame(Consumer<IngestRecord> consumer) throws ProtocolException {
+        ByteBuffer in = ByteBuffer.wrap(frame, 0, frameLength);
+        long deviceId = in.getInt() & 0xFFFFFFFFL;
+        long sequence = in.getInt() & 0xFFFFFFFFL;
+        int readingCount = in.get() & 0xFF;
+
+        if (frameLength != HEADER_SIZE + readingCount * READING_SIZE) {
+            throw new ProtocolException("Binary frame from device " + deviceId + " declares " + readingCount
+                    + " reading(s) but is " + frameLength + " bytes long");
+        }
+
+        if (expectedSequence >= 0 && sequence != expectedSequence) {
+            logger.warn("Sequence gap from device {}: expected {}, got {}", deviceId, expectedSequence, sequence);
+        }
+        expectedSequence = sequence + readingCount;
+
+        LocalDateTime sentAt = LocalDateTime.now();
+        for (int i = 0; i < readingCount; i++) {
+            int age = in.getShort() & 0xFFFF;
+            ESPReading reading = decodeReading(in);
+            consumer.accept(new IngestRecord(reading, deviceId, sequence + i, sentAt.minusSeconds(age)));
+        }
+    }
+
+    private ESPReading decodeReading(ByteBuffer in) {
+        ESPReading reading = new ESPReading();
+
+        int distance = in.getShort() & 0xFFFF;
+        short temperature = in.getShort();
+        int humidity = in.getShort() & 0xFFFF;
+        int soil = in.get() & 0xFF;
+        int flags = in.get() & 0xFF;
+
+        reading.setDistance(distance);
+        reading.markPresent(Field.DISTANCE);
+
+        if ((flags & FLAG_SENSOR_ERROR) != 0) {
+            reading.setSensorError(true);
+        } else {
+            reading.setTemperature(temperature / 10.0);
+            reading.markPresent(Field.TEMPERATURE);
+            reading.setHumidity(humidity / 10.0);
+            reading.markPresent(Field.HUMIDITY);
+        }
+
+        if (soil != SOIL_ABSENT) {
+            reading.setSoilMoisture(soil);
+            reading.markPresent(Field.SOIL);
+        }
+
+        reading.setMotion((flags & FLAG_MOTION) != 0);
+        reading.markPresent(Field.MOTION);
+        return reading;
+    }
+}
@@ -1,35 +1,58 @@
 package via.sep4.datalistener;
 
-import via.sep4.datalistener.ESPDataService;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.net.ProtocolException;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ClientHandler implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(ClientHandler.class);
+    private static final int READ_BUFFER_SIZE = 4096;
+
     private final Socket clientSocket;
-    private final ESPDataService espDataService; // <-- NEW
+    private final IngestQueue ingestQueue;
+    private final int maxLineLength;
+    private final IngestMetrics metrics;
 
-    public ClientHandler(Socket clientSocket, ESPDataService espDataService) {
+    public ClientHandler(Socket clientSocket, IngestQueue ingestQueue, int maxLineLength, IngestMetrics metrics) {
         this.clientSocket = clientSocket;
-        this.espDataService = espDataService;
+        this.ingestQueue = ingestQueue;
+        this.maxLineLength = maxLineLength;
+        this.metrics = metrics;
     }
 
     @Override
     public void run() {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                espDataService.processData(line); // <-- send to service
+        ConnectionDecoder decoder = new ConnectionDecoder(maxLineLength, ingestQueue::submit);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+        try (InputStream in = clientSocket.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                int dropped = decoder.feed(ByteBuffer.wrap(buffer, 0, read));
+                if (dropped > 0) {
+                    metrics.parseFailure("line_too_long", dropped);
+                    logger.warn("Dropped {} line(s) longer than {} bytes", dropped, maxLineLength);
+                }
             }
+        } catch (SocketTimeoutException e) {
+            logger.info("Closing idle connection: {}", e.getMessage());
+        } catch (ProtocolException e) {
+            metrics.parseFailure("bad_frame");
+            logger.warn("Protocol error: {}", e.getMessage());
         } catch (IOException e) {
-            System.err.println("Connection error: " + e.getMessage());
+            logger.warn("Connection error: {}", e.getMessage());
         } finally {
             try {
                 clientSocket.close();
-                System.out.println("Client disconnected");
+                logger.info("Client disconnected");
             } catch (IOException e) {
-                System.err.println("Error closing socket: " + e.getMessage());
+                logger.warn("Error closing socket: {}", e.getMessage());
             }
         }
     }
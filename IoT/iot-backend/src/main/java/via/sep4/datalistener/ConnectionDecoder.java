@@ -0,0 +1,96 @@
+package via.sep4.datalistener;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Per-connection decoder that picks the framing from the first bytes a board
+ * sends. A connection that opens with {@link #BINARY_HANDSHAKE} is decoded with
+ * {@link BinaryFrameDecoder}; anything else is treated as the newline-delimited
+ * text protocol. Both produce {@link IngestRecord}s for the same pipeline.
+ */
+public class ConnectionDecoder {
+    /** "ESPB" followed by the binary protocol version. */
+    public static final byte[] BINARY_HANDSHAKE = { 'E', 'S', 'P', 'B', 1 };
+
+    private static final int MAGIC_LENGTH = BINARY_HANDSHAKE.length - 1;
+
+    private enum Mode {
+        UNDECIDED, TEXT, BINARY
+    }
+
+    private final int maxLineLength;
+    private final Consumer<IngestRecord> consumer;
+
+    private Mode mode = Mode.UNDECIDED;
+    private int handshakeBytesRead = 0;
+    private LineFramer lineFramer;
+    private BinaryFrameDecoder frameDecoder;
+
+    public ConnectionDecoder(int maxLineLength, Consumer<IngestRecord> consumer) {
+        this.maxLineLength = maxLineLength;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Consumes all remaining bytes of the buffer.
+     *
+     * @return number of oversized text lines that were dropped
+     * @throws ProtocolException if the binary stream is malformed
+     */
+    public int feed(ByteBuffer buffer) throws ProtocolException {
+        if (mode == Mode.UNDECIDED) {
+            negotiate(buffer);
+        }
+
+        switch (mode) {
+            case TEXT:
+                return lineFramer.feed(buffer, this::acceptLine);
+            case BINARY:
+                frameDecoder.feed(buffer, consumer);
+                return 0;
+            default:
+                return 0;
+        }
+    }
+
+    public boolean isBinary() {
+        return mode == Mode.BINARY;
+    }
+
+    private void negotiate(ByteBuffer buffer) throws ProtocolException {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+
+            if (b != BINARY_HANDSHAKE[handshakeBytesRead]) {
+                if (handshakeBytesRead == MAGIC_LENGTH) {
+                    throw new ProtocolException("Unsupported binary protocol version: " + (b & 0xFF));
+                }
+                switchToText(buffer);
+                return;
+            }
+
+            handshakeBytesRead++;
+            if (handshakeBytesRead == BINARY_HANDSHAKE.length) {
+                mode = Mode.BINARY;
+                frameDecoder = new BinaryFrameDecoder();
+                return;
+            }
+        }
+    }
+
+    private void switchToText(ByteBuffer buffer) {
+        mode = Mode.TEXT;
+        lineFramer = new LineFramer(maxLineLength);
+
+        // the bytes that looked like the start of a handshake belong to the first line
+        lineFramer.feed(ByteBuffer.wrap(BINARY_HANDSHAKE, 0, handshakeBytesRead), this::acceptLine);
+        buffer.position(buffer.position() - 1);
+    }
+
+    private void acceptLine(String line) {
+        consumer.accept(new IngestRecord(line, LocalDateTime.now()));
+    }
+}
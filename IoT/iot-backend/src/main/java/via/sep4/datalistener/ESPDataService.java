@@ -5,20 +5,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import via.sep4.datalistener.ESPReading.Field;
 import via.sep4.model.InvalidMeasurement;
 import via.sep4.model.PlantExperiment;
 import via.sep4.model.PlantMeasurements;
 import via.sep4.processing.DataValidator;
 import via.sep4.processing.DataValidator.ValidationResult;
-import via.sep4.repository.InvalidMeasurementRepository;
-import via.sep4.repository.PlantMeasurementsRepository;
 import via.sep4.service.ExperimentConfigService;
+import via.sep4.service.InvalidMeasurementSink;
+import via.sep4.service.MeasurementWriteBehindService;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
-import java.util.regex.*;
 
 @Service
 public class ESPDataService {
@@ -28,68 +26,121 @@ public class ESPDataService {
     private DataValidator dataValidator;
 
     @Autowired
-    private PlantMeasurementsRepository measurementsRepository;
+    private MeasurementWriteBehindService measurementWriteBehind;
 
     @Autowired
-    private InvalidMeasurementRepository invalidMeasurementRepository;
+    private InvalidMeasurementSink invalidMeasurementSink;
 
     @Autowired
     private ExperimentConfigService experimentConfigService;
 
-    private final Pattern pattern = Pattern.compile("(Distance|Temp|Humidity|Soil): (\\d+\\.?\\d*)");
+    @Autowired
+    private IngestMetrics metrics;
+
+    private final ESPLineParser parser = new ESPLineParser();
+
+    private final ThreadLocal<ESPReading> readings = ThreadLocal.withInitial(ESPReading::new);
 
     public void processData(String data) {
-        logger.info("Processing data: {}", data);
+        processData(data, LocalDateTime.now());
+    }
+
+    public void processData(String data, LocalDateTime receivedAt) {
+        enqueue(toMeasurement(data, receivedAt));
+    }
+
+    /**
+     * Stores an already decoded reading. {@code rawData} is the line the reading
+     * was parsed from, or null for binary-framed readings; error reports then use
+     * the reading rendered as text.
+     */
+    public void processReading(ESPReading reading, String rawData, LocalDateTime receivedAt) {
+        enqueue(toMeasurement(reading, rawData, receivedAt));
+    }
+
+    public Long getCurrentExperimentId() {
+        return experimentConfigService.getCurrentExperimentId();
+    }
 
-        Map<String, String> extractedData = extractMeasurements(data);
-        if (extractedData.isEmpty()) {
+    public PlantMeasurements toMeasurement(String data, LocalDateTime receivedAt) {
+        return toMeasurement(data, receivedAt, experimentConfigService.getCurrentExperimentId(), true);
+    }
+
+    /**
+     * Parses and validates a line without queueing the result.
+     *
+     * @param experimentId  the experiment that was active when the line arrived
+     * @param recordInvalid whether invalid values are recorded; false for lines
+     *                      whose invalid values were recorded before
+     * @return the measurement to store, or null if the line held no valid values
+     */
+    public PlantMeasurements toMeasurement(String data, LocalDateTime receivedAt, Long experimentId,
+            boolean recordInvalid) {
+        logger.debug("Processing data: {}", data);
+
+        ESPReading reading = readings.get();
+        if (!parser.parse(data, reading)) {
             logger.warn("No valid data found in input string: {}", data);
-            storeInvalidMeasurement(null, data, "No valid data could be extracted");
-            return;
+            metrics.parseFailure("no_data");
+            storeInvalidMeasurement(recordInvalid, null, data, "No valid data could be extracted");
+            return null;
         }
 
-        Long experimentId = experimentConfigService.getCurrentExperimentId();
-        Optional<PlantExperiment> experimentOptional = experimentConfigService.getCurrentExperiment();
+        return toMeasurement(reading, data, receivedAt, experimentId, recordInvalid);
+    }
+
+    public PlantMeasurements toMeasurement(ESPReading reading, String rawData, LocalDateTime receivedAt) {
+        return toMeasurement(reading, rawData, receivedAt, experimentConfigService.getCurrentExperimentId(), true);
+    }
+
+    private PlantMeasurements toMeasurement(ESPReading reading, String rawData, LocalDateTime receivedAt,
+            Long experimentId, boolean recordInvalid) {
+        Optional<PlantExperiment> experimentOptional = experimentConfigService.getExperiment(experimentId);
 
         if (!experimentOptional.isPresent()) {
             logger.error("No active experiment found with ID: {}", experimentId);
-            storeInvalidMeasurement(experimentId, data, "Active experiment not found");
-            return;
+            storeInvalidMeasurement(recordInvalid, experimentId, rawText(reading, rawData),
+                    "Active experiment not found");
+            return null;
+        }
+
+        if (reading.hasUnknownSegment()) {
+            logger.warn("Unknown field in input string: {}", rawData);
+            metrics.parseFailure("unknown_field");
+            storeInvalidMeasurement(recordInvalid, experimentId, rawData,
+                    "Unknown field: " + reading.unknownSegment(rawData));
+        }
+
+        if (reading.isSensorError()) {
+            logger.warn("Board reported a DHT11 sensor error");
         }
 
         PlantExperiment experiment = experimentOptional.get();
 
         PlantMeasurements measurement = new PlantMeasurements();
         measurement.setExperiment(experiment);
-        measurement.setTimestamp(LocalDateTime.now());
+        measurement.setTimestamp(receivedAt);
 
         initializeDefaultValues(measurement);
 
-        processTemperature(extractedData.get("Temp"), measurement, experimentId, data);
-        processHumidity(extractedData.get("Humidity"), measurement, experimentId, data);
-        processSoilMoisture(extractedData.get("Soil"), measurement, experimentId, data);
-        processDistance(extractedData.get("Distance"), measurement, experimentId, data);
+        processTemperature(reading, rawData, measurement, experimentId, recordInvalid);
+        processHumidity(reading, rawData, measurement, experimentId, recordInvalid);
+        processSoilMoisture(reading, rawData, measurement, experimentId, recordInvalid);
+        processDistance(reading, rawData, measurement, experimentId, recordInvalid);
 
-        if (hasMeasurements(measurement)) {
-            measurementsRepository.save(measurement);
-            logger.info("Saved measurement with valid data points for experiment ID: {}", experimentId);
-        } else {
-            logger.info("No valid measurements were found, not saving to measurements table");
+        if (!hasMeasurements(measurement)) {
+            logger.debug("No valid measurements were found, not saving to measurements table");
+            return null;
         }
+        return measurement;
     }
 
-    private Map<String, String> extractMeasurements(String data) {
-        Map<String, String> extractedData = new HashMap<>();
-        Matcher matcher = pattern.matcher(data);
-
-        while (matcher.find()) {
-            String label = matcher.group(1);
-            String value = matcher.group(2);
-            extractedData.put(label, value);
-            logger.debug("Extracted {}: {}", label, value);
+    private void enqueue(PlantMeasurements measurement) {
+        if (measurement != null) {
+            measurementWriteBehind.enqueue(measurement);
+            logger.debug("Queued measurement with valid data points for experiment ID: {}",
+                    measurement.getExperiment().getId());
         }
-
-        return extractedData;
     }
 
     private void initializeDefaultValues(PlantMeasurements measurement) {
@@ -112,135 +163,179 @@ public class ESPDataService {
                 measurement.getAfstandTilHøjde() != 0;
     }
 
-    private void processTemperature(String tempValue, PlantMeasurements measurement, Long experimentId,
-            String rawData) {
-        if (tempValue == null) {
-            logger.debug("No temperature value found");
-            return;
-        }
-
-        try {
-            Float temp = Float.parseFloat(tempValue);
-            ValidationResult result = dataValidator.validateTemperature(temp);
-
-            if (result == ValidationResult.VALIDATION_SUCCESS) {
-                measurement.setLuftTemperatur(temp);
-                logger.debug("Valid temperature: {}", temp);
-            } else {
-                String errorMessage = "Temperature validation failed: " + dataValidator.getErrorMessage(result);
-                logger.warn(errorMessage);
-
-                storeInvalidMeasurement(experimentId,
-                        "Temp: " + tempValue,
-                        errorMessage);
-            }
-        } catch (NumberFormatException e) {
+    private void processTemperature(ESPReading reading, String rawData, PlantMeasurements measurement,
+            Long experimentId, boolean recordInvalid) {
+        if (reading.isMalformed(Field.TEMPERATURE)) {
+            CharSequence tempValue = reading.valueText(rawData, Field.TEMPERATURE);
             logger.warn("Invalid temperature format: {}", tempValue);
-            storeInvalidMeasurement(experimentId,
+            metrics.parseFailure("malformed_temperature");
+            storeInvalidMeasurement(recordInvalid, experimentId,
                     "Temp: " + tempValue,
                     "Invalid temperature format");
+            return;
         }
-    }
 
-    private void processHumidity(String humidityValue, PlantMeasurements measurement, Long experimentId,
-            String rawData) {
-        if (humidityValue == null) {
-            logger.debug("No humidity value found");
+        if (!reading.has(Field.TEMPERATURE)) {
+            logger.debug("No temperature value found");
             return;
         }
 
-        try {
-            Integer humidity = Integer.parseInt(humidityValue);
-            ValidationResult result = dataValidator.validateHumidity(humidity);
+        double temp = reading.getTemperature();
+        ValidationResult result = dataValidator.validateTemperature(temp);
 
-            if (result == ValidationResult.VALIDATION_SUCCESS) {
-                measurement.setLuftfugtighed(humidity);
-                logger.debug("Valid humidity: {}", humidity);
-            } else {
-                String errorMessage = "Humidity validation failed: " + dataValidator.getErrorMessage(result);
-                logger.warn(errorMessage);
+        if (result == ValidationResult.VALIDATION_SUCCESS) {
+            measurement.setLuftTemperatur(temp);
+            logger.debug("Valid temperature: {}", temp);
+        } else {
+            String errorMessage = "Temperature validation failed: " + dataValidator.getErrorMessage(result);
+            logger.warn(errorMessage);
+            metrics.validationFailure(result);
 
-                // Store the invalid humidity measurement
-                storeInvalidMeasurement(experimentId,
-                        "Humidity: " + humidityValue,
-                        errorMessage);
-            }
-        } catch (NumberFormatException e) {
+            storeInvalidMeasurement(recordInvalid, experimentId,
+                    "Temp: " + fieldText(reading, rawData, Field.TEMPERATURE),
+                    errorMessage);
+        }
+    }
+
+    private void processHumidity(ESPReading reading, String rawData, PlantMeasurements measurement,
+            Long experimentId, boolean recordInvalid) {
+        if (reading.isMalformed(Field.HUMIDITY)) {
+            CharSequence humidityValue = reading.valueText(rawData, Field.HUMIDITY);
             logger.warn("Invalid humidity format: {}", humidityValue);
-            storeInvalidMeasurement(experimentId,
+            metrics.parseFailure("malformed_humidity");
+            storeInvalidMeasurement(recordInvalid, experimentId,
                     "Humidity: " + humidityValue,
                     "Invalid humidity format");
+            return;
         }
-    }
 
-    private void processSoilMoisture(String soilValue, PlantMeasurements measurement, Long experimentId,
-            String rawData) {
-        if (soilValue == null) {
-            logger.debug("No soil moisture value found");
+        if (!reading.has(Field.HUMIDITY)) {
+            logger.debug("No humidity value found");
             return;
         }
 
-        try {
-            Integer soil = Integer.parseInt(soilValue);
-            ValidationResult result = dataValidator.validateSoilMoisture(soil);
+        double humidity = reading.getHumidity();
+        ValidationResult result = dataValidator.validateHumidity(humidity);
 
-            if (result == ValidationResult.VALIDATION_SUCCESS) {
-                measurement.setJordFugtighed(soil);
-                logger.debug("Valid soil moisture: {}", soil);
-            } else {
-                String errorMessage = "Soil moisture validation failed: " + dataValidator.getErrorMessage(result);
-                logger.warn(errorMessage);
+        if (result == ValidationResult.VALIDATION_SUCCESS) {
+            measurement.setLuftfugtighed(humidity);
+            logger.debug("Valid humidity: {}", humidity);
+        } else {
+            String errorMessage = "Humidity validation failed: " + dataValidator.getErrorMessage(result);
+            logger.warn(errorMessage);
+            metrics.validationFailure(result);
+
+            // Store the invalid humidity measurement
+            storeInvalidMeasurement(recordInvalid, experimentId,
+                    "Humidity: " + fieldText(reading, rawData, Field.HUMIDITY),
+                    errorMessage);
+        }
+    }
 
-                storeInvalidMeasurement(experimentId,
-                        "Soil: " + soilValue,
-                        errorMessage);
-            }
-        } catch (NumberFormatException e) {
+    private void processSoilMoisture(ESPReading reading, String rawData, PlantMeasurements measurement,
+            Long experimentId, boolean recordInvalid) {
+        if (reading.isMalformed(Field.SOIL)) {
+            CharSequence soilValue = reading.valueText(rawData, Field.SOIL);
             logger.warn("Invalid soil moisture format: {}", soilValue);
-            storeInvalidMeasurement(experimentId,
+            metrics.parseFailure("malformed_soil");
+            storeInvalidMeasurement(recordInvalid, experimentId,
                     "Soil: " + soilValue,
                     "Invalid soil moisture format");
+            return;
         }
-    }
 
-    private void processDistance(String distanceValue, PlantMeasurements measurement, Long experimentId,
-            String rawData) {
-        if (distanceValue == null) {
-            logger.debug("No distance value found");
+        if (!reading.has(Field.SOIL)) {
+            logger.debug("No soil moisture value found");
             return;
         }
 
-        try {
-            Integer distance = Integer.parseInt(distanceValue);
-            ValidationResult result = dataValidator.validateHeight(distance);
+        double soil = reading.getSoilMoisture();
+        ValidationResult result = dataValidator.validateSoilMoisture(soil);
 
-            if (result == ValidationResult.VALIDATION_SUCCESS) {
-                measurement.setAfstandTilHøjde(distance);
-                logger.debug("Valid distance: {}", distance);
-            } else {
-                String errorMessage = "Distance validation failed: " + dataValidator.getErrorMessage(result);
-                logger.warn(errorMessage);
+        if (result == ValidationResult.VALIDATION_SUCCESS) {
+            measurement.setJordFugtighed(soil);
+            logger.debug("Valid soil moisture: {}", soil);
+        } else {
+            String errorMessage = "Soil moisture validation failed: " + dataValidator.getErrorMessage(result);
+            logger.warn(errorMessage);
+            metrics.validationFailure(result);
 
-                storeInvalidMeasurement(experimentId,
-                        "Distance: " + distanceValue,
-                        errorMessage);
-            }
-        } catch (NumberFormatException e) {
+            storeInvalidMeasurement(recordInvalid, experimentId,
+                    "Soil: " + fieldText(reading, rawData, Field.SOIL),
+                    errorMessage);
+        }
+    }
+
+    private void processDistance(ESPReading reading, String rawData, PlantMeasurements measurement,
+            Long experimentId, boolean recordInvalid) {
+        if (reading.isMalformed(Field.DISTANCE)) {
+            CharSequence distanceValue = reading.valueText(rawData, Field.DISTANCE);
             logger.warn("Invalid distance format: {}", distanceValue);
-            storeInvalidMeasurement(experimentId,
+            metrics.parseFailure("malformed_distance");
+            storeInvalidMeasurement(recordInvalid, experimentId,
                     "Distance: " + distanceValue,
                     "Invalid distance format");
+            return;
         }
+
+        if (!reading.has(Field.DISTANCE)) {
+            logger.debug("No distance value found");
+            return;
+        }
+
+        int distance = reading.getDistance();
+        ValidationResult result = dataValidator.validateHeight(distance);
+
+        if (result == ValidationResult.VALIDATION_SUCCESS) {
+            measurement.setAfstandTilHøjde(distance);
+            logger.debug("Valid distance: {}", distance);
+        } else {
+            String errorMessage = "Distance validation failed: " + dataValidator.getErrorMessage(result);
+            logger.warn(errorMessage);
+            metrics.validationFailure(result);
+
+            storeInvalidMeasurement(recordInvalid, experimentId,
+                    "Distance: " + fieldText(reading, rawData, Field.DISTANCE),
+                    errorMessage);
+        }
+    }
+
+    private String rawText(ESPReading reading, String rawData) {
+        return rawData != null ? rawData : reading.toLine();
     }
 
-    private void storeInvalidMeasurement(Long experimentId, String rawData, String errorMessage) {
+    private CharSequence fieldText(ESPReading reading, String rawData, Field field) {
+        if (rawData != null) {
+            return reading.valueText(rawData, field);
+        }
+        switch (field) {
+            case DISTANCE:
+                return String.valueOf(reading.getDistance());
+            case TEMPERATURE:
+                return String.valueOf(reading.getTemperature());
+            case HUMIDITY:
+                return String.valueOf(reading.getHumidity());
+            default:
+                return String.valueOf(reading.getSoilMoisture());
+        }
+    }
+
+    private void storeInvalidMeasurement(boolean recordInvalid, Long experimentId, String rawData,
+            String errorMessage) {
+        if (!recordInvalid) {
+            return;
+        }
+
         InvalidMeasurement invalidMeasurement = new InvalidMeasurement();
         invalidMeasurement.setExperimentId(experimentId);
         invalidMeasurement.setRawData(rawData);
         invalidMeasurement.setValidationError(errorMessage);
         invalidMeasurement.setReceivedAt(LocalDateTime.now());
 
-        invalidMeasurementRepository.save(invalidMeasurement);
-        logger.info("Stored invalid measurement: {}", errorMessage);
+        if (invalidMeasurementSink.record(invalidMeasurement)) {
+            logger.debug("Queued invalid measurement: {}", errorMessage);
+        } else {
+            logger.warn("Invalid measurement sink is full, dropped: {}", errorMessage);
+        }
     }
 }
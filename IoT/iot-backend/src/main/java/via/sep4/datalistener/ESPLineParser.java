@@ -0,0 +1,217 @@
+package via.sep4.datalistener;
+
+import via.sep4.datalistener.ESPReading.Field;
+
+/**
+ * Single-pass parser for the text line sent by the boards in
+ * iot-drivers/src/main.c:
+ *
+ * <pre>
+ * Distance: 12 cm, Temp: 21.5 C, Humidity: 45.0 %, Motion: Yes
+ * Distance: 12 cm, DHT11 sensor error!, Motion: No
+ * </pre>
+ *
+ * Values are written straight into a reused {@link ESPReading}; the parser
+ * itself is stateless and allocates nothing.
+ */
+public class ESPLineParser {
+    private static final String SENSOR_ERROR = "DHT11 sensor error!";
+    private static final int MAX_DIGITS = 9;
+    private static final double[] POWERS_OF_TEN = { 1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9 };
+
+    /**
+     * Parses one line into the given reading, which is reset first.
+     *
+     * @return true if at least one known field was found, even if malformed
+     */
+    public boolean parse(CharSequence line, ESPReading reading) {
+        reading.reset();
+
+        int length = line.length();
+        int pos = 0;
+        while (pos < length) {
+            int segmentEnd = indexOf(line, ',', pos, length);
+            int start = skipSpaces(line, pos, segmentEnd);
+            int end = trimEnd(line, start, segmentEnd);
+
+            if (start < end) {
+                parseSegment(line, start, end, reading);
+            }
+            pos = segmentEnd + 1;
+        }
+
+        return !reading.isEmpty();
+    }
+
+    private void parseSegment(CharSequence line, int start, int end, ESPReading reading) {
+        int colon = indexOf(line, ':', start, end);
+        if (colon == end) {
+            if (regionEquals(line, start, end, SENSOR_ERROR)) {
+                reading.setSensorError(true);
+            } else {
+                reading.markUnknown(start, end);
+            }
+            return;
+        }
+
+        Field field = field(line, start, trimEnd(line, start, colon));
+        if (field == null) {
+            reading.markUnknown(start, end);
+            return;
+        }
+
+        int valueStart = skipSpaces(line, colon + 1, end);
+        if (field == Field.MOTION) {
+            parseMotion(line, valueStart, end, reading);
+        } else {
+            parseNumber(line, valueStart, end, field, reading);
+        }
+    }
+
+    private void parseMotion(CharSequence line, int start, int end, ESPReading reading) {
+        if (regionEquals(line, start, end, "Yes")) {
+            reading.setMotion(true);
+            reading.markPresent(Field.MOTION, start, end);
+        } else if (regionEquals(line, start, end, "No")) {
+            reading.setMotion(false);
+            reading.markPresent(Field.MOTION, start, end);
+        } else {
+            reading.markMalformed(Field.MOTION, start, end);
+        }
+    }
+
+    private void parseNumber(CharSequence line, int start, int end, Field field, ESPReading reading) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && line.charAt(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long integerPart = 0;
+        int integerDigits = 0;
+        while (pos < end && isDigit(line.charAt(pos))) {
+            integerPart = integerPart * 10 + (line.charAt(pos) - '0');
+            integerDigits++;
+            pos++;
+        }
+
+        long fractionPart = 0;
+        int fractionDigits = 0;
+        boolean hasFraction = false;
+        if (pos < end && line.charAt(pos) == '.') {
+            hasFraction = true;
+            pos++;
+            while (pos < end && isDigit(line.charAt(pos))) {
+                if (fractionDigits < MAX_DIGITS) {
+                    fractionPart = fractionPart * 10 + (line.charAt(pos) - '0');
+                    fractionDigits++;
+                }
+                pos++;
+            }
+        }
+
+        int numberEnd = pos;
+        int unitStart = skipSpaces(line, numberEnd, end);
+        boolean validUnit = unitStart == end || regionEquals(line, unitStart, end, unit(field));
+
+        if (integerDigits == 0 || integerDigits > MAX_DIGITS || !validUnit
+                || (hasFraction && fractionDigits == 0)
+                || (field == Field.DISTANCE && hasFraction)) {
+            reading.markMalformed(field, start, end);
+            return;
+        }
+
+        double value = integerPart + fractionPart / POWERS_OF_TEN[fractionDigits];
+        if (negative) {
+            value = -value;
+        }
+
+        switch (field) {
+            case DISTANCE:
+                reading.setDistance((int) value);
+                break;
+            case TEMPERATURE:
+                reading.setTemperature(value);
+                break;
+            case HUMIDITY:
+                reading.setHumidity(value);
+                break;
+            case SOIL:
+                reading.setSoilMoisture(value);
+                break;
+            default:
+                break;
+        }
+        reading.markPresent(field, start, numberEnd);
+    }
+
+    private Field field(CharSequence line, int start, int end) {
+        if (regionEquals(line, start, end, "Distance")) {
+            return Field.DISTANCE;
+        }
+        if (regionEquals(line, start, end, "Temp")) {
+            return Field.TEMPERATURE;
+        }
+        if (regionEquals(line, start, end, "Humidity")) {
+            return Field.HUMIDITY;
+        }
+        if (regionEquals(line, start, end, "Soil")) {
+            return Field.SOIL;
+        }
+        if (regionEquals(line, start, end, "Motion")) {
+            return Field.MOTION;
+        }
+        return null;
+    }
+
+    private String unit(Field field) {
+        switch (field) {
+            case DISTANCE:
+                return "cm";
+            case TEMPERATURE:
+                return "C";
+            default:
+                return "%";
+        }
+    }
+
+    private static boolean regionEquals(CharSequence line, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (line.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence line, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int skipSpaces(CharSequence line, int from, int to) {
+        while (from < to && line.charAt(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence line, int from, int to) {
+        while (to > from && line.charAt(to - 1) == ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
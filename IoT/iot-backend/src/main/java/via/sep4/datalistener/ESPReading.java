@@ -0,0 +1,180 @@
+package via.sep4.datalistener;
+
+/**
+ * One decoded sensor reading from an ESP board. Instances are meant to be
+ * reused: call {@link #reset()} and decode the next reading into the same
+ * object, so the ingest path does not allocate per line.
+ */
+public class ESPReading {
+    public enum Field {
+        DISTANCE, TEMPERATURE, HUMIDITY, SOIL, MOTION
+    }
+
+    private static final int FIELD_COUNT = Field.values().length;
+
+    private int present;
+    private int malformed;
+    private final int[] valueStart = new int[FIELD_COUNT];
+    private final int[] valueEnd = new int[FIELD_COUNT];
+
+    private int distance;
+    private double temperature;
+    private double humidity;
+    private double soilMoisture;
+    private boolean motion;
+    private boolean sensorError;
+
+    private int unknownStart;
+    private int unknownEnd;
+
+    public ESPReading() {
+        reset();
+    }
+
+    public void reset() {
+        present = 0;
+        malformed = 0;
+        distance = 0;
+        temperature = 0;
+        humidity = 0;
+        soilMoisture = 0;
+        motion = false;
+        sensorError = false;
+        unknownStart = -1;
+        unknownEnd = -1;
+    }
+
+    public boolean has(Field field) {
+        return (present & bit(field)) != 0;
+    }
+
+    public boolean isMalformed(Field field) {
+        return (malformed & bit(field)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return present == 0 && malformed == 0;
+    }
+
+    public boolean hasUnknownSegment() {
+        return unknownStart >= 0;
+    }
+
+    /**
+     * Returns the text of a field value as it appeared in the line, for error
+     * reporting. Only valid for the line this reading was parsed from.
+     */
+    public CharSequence valueText(CharSequence line, Field field) {
+        return line.subSequence(valueStart[field.ordinal()], valueEnd[field.ordinal()]);
+    }
+
+    public CharSequence unknownSegment(CharSequence line) {
+        return hasUnknownSegment() ? line.subSequence(unknownStart, unknownEnd) : "";
+    }
+
+    /**
+     * Renders the reading in the text protocol format, for readings that did not
+     * arrive as a text line.
+     */
+    public String toLine() {
+        StringBuilder sb = new StringBuilder(80);
+        if (has(Field.DISTANCE)) {
+            sb.append("Distance: ").append(distance).append(" cm");
+        }
+        if (sensorError) {
+            separator(sb).append("DHT11 sensor error!");
+        }
+        if (has(Field.TEMPERATURE)) {
+            separator(sb).append("Temp: ").append(temperature).append(" C");
+        }
+        if (has(Field.HUMIDITY)) {
+            separator(sb).append("Humidity: ").append(humidity).append(" %");
+        }
+        if (has(Field.SOIL)) {
+            separator(sb).append("Soil: ").append(soilMoisture).append(" %");
+        }
+        if (has(Field.MOTION)) {
+            separator(sb).append("Motion: ").append(motion ? "Yes" : "No");
+        }
+        return sb.toString();
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public double getHumidity() {
+        return humidity;
+    }
+
+    public double getSoilMoisture() {
+        return soilMoisture;
+    }
+
+    public boolean isMotion() {
+        return motion;
+    }
+
+    public boolean isSensorError() {
+        return sensorError;
+    }
+
+    void markPresent(Field field, int start, int end) {
+        present |= bit(field);
+        valueStart[field.ordinal()] = start;
+        valueEnd[field.ordinal()] = end;
+    }
+
+    void markPresent(Field field) {
+        markPresent(field, -1, -1);
+    }
+
+    void markMalformed(Field field, int start, int end) {
+        malformed |= bit(field);
+        valueStart[field.ordinal()] = start;
+        valueEnd[field.ordinal()] = end;
+    }
+
+    void markUnknown(int start, int end) {
+        if (unknownStart < 0) {
+            unknownStart = start;
+            unknownEnd = end;
+        }
+    }
+
+    void setDistance(int distance) {
+        this.distance = distance;
+    }
+
+    void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    void setHumidity(double humidity) {
+        this.humidity = humidity;
+    }
+
+    void setSoilMoisture(double soilMoisture) {
+        this.soilMoisture = soilMoisture;
+    }
+
+    void setMotion(boolean motion) {
+        this.motion = motion;
+    }
+
+    void setSensorError(boolean sensorError) {
+        this.sensorError = sensorError;
+    }
+
+    private static StringBuilder separator(StringBuilder sb) {
+        return sb.length() > 0 ? sb.append(", ") : sb;
+    }
+
+    private static int bit(Field field) {
+        return 1 << field.ordinal();
+    }
+}
@@ -1,37 +1,175 @@
 package via.sep4.datalistener;
 
-import via.sep4.datalistener.ClientHandler;
-import via.sep4.datalistener.ESPDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class ESPServer {
+    private static final Logger logger = LoggerFactory.getLogger(ESPServer.class);
+
     private final int port;
-    private final ESPDataService espDataService;
+    private final String mode;
+    private final int nioEventLoops;
+    private final int nioReadBufferSize;
+    private final int maxLineLength;
+    private final int maxConnections;
+    private final int acceptBacklog;
+    private final int readTimeoutMs;
+    private final IngestQueue ingestQueue;
+    private final IngestMetrics metrics;
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+    private volatile NioESPServer nioServer;
 
     @Autowired
-    public ESPServer(ESPDataService espDataService) {
-        this.port = 23;
-        this.espDataService = espDataService;
+    public ESPServer(IngestQueue ingestQueue, IngestMetrics metrics,
+            @Value("${esp.server.port:23}") int port,
+            @Value("${esp.server.mode:blocking}") String mode,
+            @Value("${esp.server.nio.event-loops:2}") int nioEventLoops,
+            @Value("${esp.server.nio.read-buffer-size:8192}") int nioReadBufferSize,
+            @Value("${esp.server.max-line-length:512}") int maxLineLength,
+            @Value("${esp.server.max-connections:2000}") int maxConnections,
+            @Value("${esp.server.accept-backlog:256}") int acceptBacklog,
+            @Value("${esp.server.read-timeout-ms:60000}") int readTimeoutMs) {
+        this.port = port;
+        this.mode = mode;
+        this.nioEventLoops = nioEventLoops;
+        this.nioReadBufferSize = nioReadBufferSize;
+        this.maxLineLength = maxLineLength;
+        this.maxConnections = maxConnections;
+        this.acceptBacklog = acceptBacklog;
+        this.readTimeoutMs = readTimeoutMs;
+        this.ingestQueue = ingestQueue;
+        this.metrics = metrics;
     }
 
     public void start() {
-        System.out.println("Starting ESP TCP Server on port " + port);
+        if ("nio".equalsIgnoreCase(mode)) {
+            startNio();
+        } else {
+            startBlocking();
+        }
+    }
 
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
+    private void startBlocking() {
+        logger.info("Starting ESP TCP Server on port {}", port);
+
+        Semaphore connectionPermits = new Semaphore(maxConnections);
+        ExecutorService executor = newConnectionExecutor();
+
+        try (ServerSocket serverSocket = new ServerSocket(port, acceptBacklog)) {
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("Client connected from " + clientSocket.getInetAddress());
-                new Thread(new ClientHandler(clientSocket, espDataService)).start();
+
+                if (!connectionPermits.tryAcquire()) {
+                    rejectedConnections.incrementAndGet();
+                    logger.warn("Connection limit of {} reached, rejecting {}", maxConnections,
+                            clientSocket.getInetAddress());
+                    closeQuietly(clientSocket);
+                    continue;
+                }
+
+                try {
+                    clientSocket.setSoTimeout(readTimeoutMs);
+                    clientSocket.setKeepAlive(true);
+                    logger.info("Client connected from {}", clientSocket.getInetAddress());
+
+                    executor.execute(() -> {
+                        activeConnections.incrementAndGet();
+                        try {
+                            new ClientHandler(clientSocket, ingestQueue, maxLineLength, metrics).run();
+                        } finally {
+                            activeConnections.decrementAndGet();
+                            connectionPermits.release();
+                        }
+                    });
+                } catch (IOException | RejectedExecutionException e) {
+                    logger.warn("Could not hand off connection: {}", e.getMessage());
+                    connectionPermits.release();
+                    closeQuietly(clientSocket);
+                }
             }
         } catch (IOException e) {
-            System.err.println("Server error: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Server error", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * One task per connection. Uses virtual threads when the runtime provides
+     * them (Java 21+), so a handler blocked on a socket read or a JDBC call does
+     * not hold an OS thread. On older runtimes the pool is capped at the
+     * connection limit instead.
+     */
+    private ExecutorService newConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            logger.info("Handling ESP connections on virtual threads");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads unavailable, handling ESP connections on a pool of up to {} threads",
+                    maxConnections);
+            return new ThreadPoolExecutor(0, maxConnections, 60L, TimeUnit.SECONDS, new SynchronousQueue<>());
+        }
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.warn("Error closing socket: {}", e.getMessage());
+        }
+    }
+
+    public int getActiveConnections() {
+        NioESPServer server = nioServer;
+        return server != null ? server.getConnectedClients() : activeConnections.get();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.get();
+    }
+
+    /**
+     * Event loops that stopped reading while the ingest queue was full start
+     * reading again once it has drained.
+     */
+    @EventListener
+    public void onQueueWatermark(IngestQueueWatermarkEvent event) {
+        NioESPServer server = nioServer;
+        if (!event.isOverloaded() && server != null) {
+            server.resumeReads();
+        }
+    }
+
+    private void startNio() {
+        logger.info("Starting ESP NIO TCP Server on port {}", port);
+
+        nioServer = new NioESPServer(port, nioEventLoops, nioReadBufferSize, maxLineLength, ingestQueue, metrics);
+        try {
+            nioServer.start();
+        } catch (IOException e) {
+            logger.error("Server error", e);
         }
     }
 }
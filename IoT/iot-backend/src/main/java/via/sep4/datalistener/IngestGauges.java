@@ -0,0 +1,77 @@
+package via.sep4.datalistener;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import via.sep4.service.InvalidMeasurementSink;
+import via.sep4.service.MeasurementWriteBehindService;
+
+/**
+ * Gauges for the state of the ingest pipeline. Kept apart from
+ * {@link IngestMetrics} because it depends on the components that record into
+ * {@link IngestMetrics}.
+ */
+@Component
+public class IngestGauges implements MeterBinder {
+    private final ESPServer espServer;
+    private final IngestQueue ingestQueue;
+    private final MeasurementWriteBehindService measurementWriteBehind;
+    private final InvalidMeasurementSink invalidMeasurementSink;
+    private final JournalReplayer journalReplayer;
+
+    @Autowired
+    public IngestGauges(ESPServer espServer, IngestQueue ingestQueue,
+            MeasurementWriteBehindService measurementWriteBehind, InvalidMeasurementSink invalidMeasurementSink,
+            JournalReplayer journalReplayer) {
+        this.espServer = espServer;
+        this.ingestQueue = ingestQueue;
+        this.measurementWriteBehind = measurementWriteBehind;
+        this.invalidMeasurementSink = invalidMeasurementSink;
+        this.journalReplayer = journalReplayer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("esp.connections.active", espServer, ESPServer::getActiveConnections)
+                .description("Connected ESP devices")
+                .register(registry);
+
+        Gauge.builder("esp.ingest.queue.depth", ingestQueue, IngestQueue::getQueueDepth)
+                .description("Records queued between ingest stages")
+                .tag("queue", "ingest")
+                .register(registry);
+        Gauge.builder("esp.ingest.queue.depth", measurementWriteBehind, MeasurementWriteBehindService::getQueueDepth)
+                .description("Records queued between ingest stages")
+                .tag("queue", "write_behind")
+                .register(registry);
+        Gauge.builder("esp.ingest.queue.depth", invalidMeasurementSink, InvalidMeasurementSink::getQueueDepth)
+                .description("Records queued between ingest stages")
+                .tag("queue", "invalid_sink")
+                .register(registry);
+
+        Gauge.builder("esp.ingest.queue.capacity", ingestQueue, IngestQueue::getCapacity)
+                .tag("queue", "ingest")
+                .register(registry);
+        Gauge.builder("esp.ingest.queue.capacity", measurementWriteBehind,
+                MeasurementWriteBehindService::getQueueCapacity)
+                .tag("queue", "write_behind")
+                .register(registry);
+
+        FunctionCounter.builder("esp.ingest.dropped", ingestQueue, IngestQueue::getDroppedLines)
+                .description("Records dropped because a queue was full")
+                .tag("queue", "ingest")
+                .register(registry);
+        FunctionCounter.builder("esp.ingest.dropped", invalidMeasurementSink, InvalidMeasurementSink::getDroppedErrors)
+                .description("Records dropped because a queue was full")
+                .tag("queue", "invalid_sink")
+                .register(registry);
+
+        Gauge.builder("esp.journal.lag", journalReplayer, JournalReplayer::getLag)
+                .description("Journal entries not yet stored in the database")
+                .register(registry);
+    }
+}
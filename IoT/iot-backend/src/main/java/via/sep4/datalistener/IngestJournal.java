@@ -0,0 +1,367 @@
+package via.sep4.datalistener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only journal of raw ESP lines, kept in fixed-size segment files that
+ * are written through a {@link MappedByteBuffer}. Every line gets a sequence
+ * number when it is appended; {@link JournalReplayer} reads the journal back,
+ * writes the measurements and records how far it got in a checkpoint file, so
+ * lines survive database outages and restarts.
+ *
+ * <p>
+ * Segments are named after the sequence number of their first entry. Each
+ * entry is laid out as:
+ *
+ * <pre>
+ * int   payload length, 0 marks the end of the written part of a segment
+ * int   CRC32 of sequence, timestamp, experiment and payload
+ * long  sequence number
+ * long  received at, epoch millis
+ * long  id of the experiment active when the line arrived, 0 if none
+ * byte[] payload, UTF-8
+ * </pre>
+ *
+ * The length is written last, so a torn write is never read as an entry.
+ */
+@Component
+public class IngestJournal {
+    private static final Logger logger = LoggerFactory.getLogger(IngestJournal.class);
+
+    static final int ENTRY_HEADER_SIZE = 32;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long retentionMs;
+    private final boolean syncOnAppend;
+
+    // first sequence number -> segment file
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private volatile long lastSequence = 0;
+    private volatile long checkpoint = 1;
+
+    @Autowired
+    public IngestJournal(@Value("${esp.journal.enabled:false}") boolean enabled,
+            @Value("${esp.journal.directory:./esp-journal}") String directory,
+            @Value("${esp.journal.segment-size-bytes:67108864}") int segmentSize,
+            @Value("${esp.journal.retention-ms:86400000}") long retentionMs,
+            @Value("${esp.journal.sync-on-append:false}") boolean syncOnAppend) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.retentionMs = retentionMs;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(path -> segments.put(firstSequence(path), path));
+        }
+
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointFile)) {
+            checkpoint = Long.parseLong(Files.readString(checkpointFile).trim());
+        }
+
+        if (segments.isEmpty()) {
+            lastSequence = checkpoint - 1;
+        } else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            lastSequence = last.getKey() - 1 + countEntries(last.getValue(), last.getKey());
+        }
+
+        openSegment(lastSequence + 1);
+        logger.info("Ingest journal opened in {} ({} segment(s), last sequence {}, checkpoint {})",
+                directory.toAbsolutePath(), segments.size(), lastSequence, checkpoint);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            active.force();
+            activeChannel.close();
+            activeChannel = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a line and returns its sequence number. The experiment is kept
+     * with the line, so it is stored for that experiment even if another one
+     * is active by the time it is replayed. Once this returns, the line
+     * survives a crash of the application; with sync-on-append it also survives
+     * a crash of the machine.
+     */
+    public synchronized long append(String line, LocalDateTime receivedAt, Long experimentId) throws IOException {
+        byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+        int entrySize = ENTRY_HEADER_SIZE + payload.length;
+        if (entrySize > segmentSize) {
+            throw new IOException("Line of " + payload.length + " bytes does not fit in a journal segment");
+        }
+
+        long sequence = lastSequence + 1;
+        if (active.remaining() < entrySize) {
+            rotate(sequence);
+        }
+
+        int pos = active.position();
+        active.putLong(pos + 8, sequence);
+        active.putLong(pos + 16, receivedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        active.putLong(pos + 24, experimentId != null ? experimentId : 0);
+        active.put(pos + ENTRY_HEADER_SIZE, payload);
+
+        crc.reset();
+        crc.update(active.slice(pos + 8, entrySize - 8));
+        active.putInt(pos + 4, (int) crc.getValue());
+        active.putInt(pos, payload.length);
+        active.position(pos + entrySize);
+
+        if (syncOnAppend) {
+            active.force(pos, entrySize);
+        }
+
+        lastSequence = sequence;
+        notifyAll();
+        return sequence;
+    }
+
+    /**
+     * Waits until an entry with the given sequence number has been appended or
+     * the timeout passes.
+     */
+    public synchronized void awaitAppend(long sequence, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        long remaining;
+        while (lastSequence < sequence && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    /**
+     * Records that every entry before {@code nextSequence} has been stored and
+     * deletes replayed segments older than the retention period.
+     */
+    public void checkpoint(long nextSequence) throws IOException {
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(tmp, Long.toString(nextSequence));
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = nextSequence;
+
+        deleteExpiredSegments();
+    }
+
+    public Reader openReader(long fromSequence) throws IOException {
+        Reader reader = new Reader();
+        reader.seek(fromSequence);
+        return reader;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getFirstRetainedSequence() {
+        return segments.isEmpty() ? lastSequence + 1 : segments.firstKey();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void rotate(long firstSequence) throws IOException {
+        active.force();
+        activeChannel.close();
+        openSegment(firstSequence);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segments.put(firstSequence, path);
+    }
+
+    private void deleteExpiredSegments() throws IOException {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            Long nextFirst = segments.higherKey(segment.getKey());
+            // keep the active segment and anything not fully replayed
+            if (nextFirst == null || nextFirst > checkpoint) {
+                break;
+            }
+            Path path = segment.getValue();
+            if (Files.getLastModifiedTime(path).toMillis() <= cutoff) {
+                segments.remove(segment.getKey());
+                Files.deleteIfExists(path);
+                logger.info("Deleted replayed journal segment {}", path.getFileName());
+            }
+        }
+    }
+
+    private long countEntries(Path path, long firstSequence) throws IOException {
+        ByteBuffer buffer = map(path);
+        long count = 0;
+        while (readEntry(buffer, firstSequence + count) != null) {
+            count++;
+        }
+        return count;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static long firstSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Reads the entry at the buffer's position and advances past it.
+     *
+     * @return null at the end of the written data or at a damaged entry
+     */
+    private static JournalEntry readEntry(ByteBuffer buffer, long expectedSequence) {
+        int pos = buffer.position();
+        if (buffer.limit() - pos < ENTRY_HEADER_SIZE) {
+            return null;
+        }
+
+        int length = buffer.getInt(pos);
+        if (length <= 0 || length > buffer.limit() - pos - ENTRY_HEADER_SIZE) {
+            return null;
+        }
+
+        long sequence = buffer.getLong(pos + 8);
+        if (sequence != expectedSequence) {
+            return null;
+        }
+
+        CRC32 entryCrc = new CRC32();
+        entryCrc.update(buffer.slice(pos + 8, length + ENTRY_HEADER_SIZE - 8));
+        if ((int) entryCrc.getValue() != buffer.getInt(pos + 4)) {
+            return null;
+        }
+
+        long receivedAtMillis = buffer.getLong(pos + 16);
+        long experimentId = buffer.getLong(pos + 24);
+        byte[] payload = new byte[length];
+        buffer.get(pos + ENTRY_HEADER_SIZE, payload);
+        buffer.position(pos + ENTRY_HEADER_SIZE + length);
+
+        LocalDateTime receivedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(receivedAtMillis),
+                ZoneId.systemDefault());
+        return new JournalEntry(sequence, receivedAt, experimentId != 0 ? experimentId : null,
+                new String(payload, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sequential cursor over the journal, used by a single thread.
+     */
+    public class Reader {
+        private ByteBuffer buffer;
+        private long nextSequence;
+
+        /**
+         * Moves the cursor to the given sequence number, or to the oldest retained
+         * entry if that one has already been deleted.
+         */
+        public void seek(long sequence) throws IOException {
+            nextSequence = Math.max(sequence, getFirstRetainedSequence());
+            buffer = null;
+
+            Map.Entry<Long, Path> segment = segments.floorEntry(nextSequence);
+            if (segment == null) {
+                return;
+            }
+
+            buffer = map(segment.getValue());
+            for (long seq = segment.getKey(); seq < nextSequence; seq++) {
+                if (readEntry(buffer, seq) == null) {
+                    throw new IOException("Journal segment " + segment.getValue().getFileName()
+                            + " ends before sequence " + nextSequence);
+                }
+            }
+        }
+
+        /**
+         * @return the next entry, or null if the reader has caught up with the
+         *         writer
+         */
+        public JournalEntry next() throws IOException {
+            while (nextSequence <= lastSequence) {
+                if (buffer != null) {
+                    JournalEntry entry = readEntry(buffer, nextSequence);
+                    if (entry != null) {
+                        nextSequence++;
+                        return entry;
+                    }
+                }
+
+                // end of the current segment, the next one starts at nextSequence
+                Path next = segments.get(nextSequence);
+                if (next == null) {
+                    throw new IOException("Journal entry " + nextSequence + " is missing or damaged");
+                }
+                buffer = map(next);
+            }
+            return null;
+        }
+
+        public long getNextSequence() {
+            return nextSequence;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package via.sep4.datalistener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.processing.DataValidator.ValidationResult;
+
+/**
+ * Counters and timers for the ESP ingest path, published through Actuator at
+ * {@code /actuator/prometheus}. Timers publish histogram buckets so quantiles
+ * can be aggregated across instances. Queue depths and connection counts are
+ * gauges registered by {@link IngestGauges}.
+ */
+@Component
+public class IngestMetrics {
+    public static final String TABLE_MEASUREMENTS = "plant_measurements";
+    public static final String TABLE_INVALID_MEASUREMENTS = "invalid_measurement";
+
+    private final MeterRegistry registry;
+
+    private final Counter textLines;
+    private final Counter binaryReadings;
+    private final Map<String, Counter> parseFailures = new ConcurrentHashMap<>();
+    private final Map<ValidationResult, Counter> validationFailures = new EnumMap<>(ValidationResult.class);
+    private final Map<String, Timer> saveTimers = new ConcurrentHashMap<>();
+    private final Timer commitLatency;
+
+    @Autowired
+    public IngestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        textLines = linesReceived("text");
+        binaryReadings = linesReceived("binary");
+
+        for (ValidationResult result : ValidationResult.values()) {
+            if (result == ValidationResult.VALIDATION_SUCCESS) {
+                continue;
+            }
+            validationFailures.put(result, Counter.builder("esp.ingest.validation.failures")
+                    .description("Values rejected by the data validator")
+                    .tag("result", result.name())
+                    .register(registry));
+        }
+
+        commitLatency = Timer.builder("esp.ingest.commit.latency")
+                .description("Time from receiving a reading to committing its measurement")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(registry);
+    }
+
+    private Counter linesReceived(String protocol) {
+        return Counter.builder("esp.ingest.lines.received")
+                .description("Lines and binary-framed readings received from ESP devices")
+                .tag("protocol", protocol)
+                .register(registry);
+    }
+
+    public void lineReceived(IngestRecord record) {
+        (record.isDecoded() ? binaryReadings : textLines).increment();
+    }
+
+    /**
+     * Counts input that could not be turned into values, e.g. {@code no_data},
+     * {@code unknown_field}, {@code malformed_temperature}, {@code line_too_long}
+     * or {@code bad_frame}.
+     */
+    public void parseFailure(String reason) {
+        parseFailure(reason, 1);
+    }
+
+    public void parseFailure(String reason, int count) {
+        parseFailures.computeIfAbsent(reason, r -> Counter.builder("esp.ingest.parse.failures")
+                .description("ESP input that could not be parsed")
+                .tag("reason", r)
+                .register(registry))
+                .increment(count);
+    }
+
+    public void validationFailure(ValidationResult result) {
+        Counter counter = validationFailures.get(result);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Records the duration of one repository write of a batch.
+     */
+    public void recordSave(String table, boolean committed, long durationNanos) {
+        String key = table + (committed ? ":success" : ":failure");
+        saveTimers.computeIfAbsent(key, k -> Timer.builder("esp.repository.save")
+                .description("Time spent writing a batch to the database")
+                .tag("table", table)
+                .tag("outcome", committed ? "success" : "failure")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records line-to-commit latency for a committed batch. For binary-framed
+     * readings the receive time is when the device took the reading, so the
+     * latency includes the time it was buffered on the device.
+     */
+    public void recordCommitted(List<PlantMeasurements> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        for (PlantMeasurements measurement : batch) {
+            if (measurement.getTimestamp() != null) {
+                commitLatency.record(Duration.between(measurement.getTimestamp(), now));
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package via.sep4.datalistener;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bounded buffer between the socket readers and {@link ESPDataService}. A
+ * fixed number of workers take lines (or binary-framed readings) off the
+ * queue, so a slow database only fills the queue instead of stalling every
+ * connection. What happens when the queue is full is decided by the
+ * {@link OverloadPolicy}. When the {@link IngestJournal} is enabled, records
+ * are appended to it instead and {@link JournalReplayer} does the processing.
+ */
+@Component
+public class IngestQueue {
+    private static final Logger logger = LoggerFactory.getLogger(IngestQueue.class);
+
+    public enum OverloadPolicy {
+        /** Block the reading connection until there is room (TCP backpressure). */
+        BLOCK,
+        /** Discard the oldest queued line to make room for the new one. */
+        DROP_OLDEST,
+        /** Discard the new line. */
+        DROP_NEWEST
+    }
+
+    private final ESPDataService espDataService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IngestJournal journal;
+    private final IngestMetrics metrics;
+    private final BlockingQueue<IngestRecord> queue;
+    private final int capacity;
+    private final OverloadPolicy policy;
+    private final int workerCount;
+    private final int highWatermark;
+    private final int lowWatermark;
+
+    private final AtomicLong acceptedLines = new AtomicLong();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final AtomicLong processedLines = new AtomicLong();
+    private final AtomicBoolean overloaded = new AtomicBoolean();
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public IngestQueue(ESPDataService espDataService, ApplicationEventPublisher eventPublisher, IngestJournal journal,
+            IngestMetrics metrics,
+            @Value("${esp.ingest.queue-capacity:20000}") int capacity,
+            @Value("${esp.ingest.overload-policy:BLOCK}") OverloadPolicy policy,
+            @Value("${esp.ingest.workers:4}") int workerCount,
+            @Value("${esp.ingest.high-watermark:0.8}") double highWatermark,
+            @Value("${esp.ingest.low-watermark:0.5}") double lowWatermark) {
+        this.espDataService = espDataService;
+        this.eventPublisher = eventPublisher;
+        this.journal = journal;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.workerCount = Math.max(1, workerCount);
+        this.highWatermark = (int) Math.ceil(capacity * highWatermark);
+        this.lowWatermark = (int) Math.floor(capacity * lowWatermark);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "esp-ingest-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info("Ingest queue started (capacity {}, policy {}, {} worker(s))", capacity, policy, workerCount);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Hands a received line to the workers.
+     *
+     * @return false if the line was dropped
+     */
+    public boolean submit(String line) {
+        return submit(new IngestRecord(line, LocalDateTime.now()));
+    }
+
+    /**
+     * Hands a received line or decoded binary reading to the workers.
+     *
+     * @return false if the record was dropped
+     */
+    public boolean submit(IngestRecord record) {
+        metrics.lineReceived(record);
+        if (appendToJournal(record)) {
+            return true;
+        }
+
+        boolean accepted;
+
+        switch (policy) {
+            case DROP_OLDEST:
+                while (!queue.offer(record)) {
+                    if (queue.poll() != null) {
+                        droppedLines.incrementAndGet();
+                    }
+                }
+                accepted = true;
+                break;
+            case DROP_NEWEST:
+                accepted = queue.offer(record);
+                if (!accepted) {
+                    droppedLines.incrementAndGet();
+                }
+                break;
+            default:
+                try {
+                    queue.put(record);
+                    accepted = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedLines.incrementAndGet();
+                    accepted = false;
+                }
+                break;
+        }
+
+        if (accepted) {
+            acceptedLines.incrementAndGet();
+        }
+        checkHighWatermark();
+        return accepted;
+    }
+
+    /**
+     * Like {@link #submit(IngestRecord)}, but never waits for room. Under the
+     * BLOCK policy a record that does not fit is not taken: the caller keeps
+     * it, stops reading and offers it again once the queue has drained below
+     * its low watermark. The other policies never wait, so they apply as usual.
+     *
+     * @return false if the queue is full and the record was not taken
+     */
+    public boolean offer(IngestRecord record) {
+        if (policy != OverloadPolicy.BLOCK) {
+            submit(record);
+            return true;
+        }
+
+        if (!appendToJournal(record)) {
+            if (!queue.offer(record)) {
+                checkHighWatermark();
+                return false;
+            }
+            acceptedLines.incrementAndGet();
+            checkHighWatermark();
+        }
+        metrics.lineReceived(record);
+        return true;
+    }
+
+    private boolean appendToJournal(IngestRecord record) {
+        if (journal == null || !journal.isEnabled()) {
+            return false;
+        }
+        try {
+            journal.append(record.getLine(), record.getReceivedAt(), espDataService.getCurrentExperimentId());
+            acceptedLines.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            logger.error("Could not append to the ingest journal, processing in memory", e);
+            return false;
+        }
+    }
+
+    private void runWorker() {
+        while (running || !queue.isEmpty()) {
+            IngestRecord record;
+            try {
+                record = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // shutting down, keep draining without waiting
+                record = queue.poll();
+            }
+
+            if (record == null) {
+                continue;
+            }
+            checkLowWatermark();
+
+            try {
+                if (record.isDecoded()) {
+                    espDataService.processReading(record.getReading(), null, record.getReceivedAt());
+                } else {
+                    espDataService.processData(record.getLine(), record.getReceivedAt());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error processing line: {}", record.getLine(), e);
+            }
+            processedLines.incrementAndGet();
+        }
+    }
+
+    private void checkHighWatermark() {
+        int depth = queue.size();
+        if (depth >= highWatermark && overloaded.compareAndSet(false, true)) {
+            logger.warn("Ingest queue above high watermark ({} of {} lines queued, policy {})",
+                    depth, capacity, policy);
+            eventPublisher.publishEvent(new IngestQueueWatermarkEvent(this, true, depth, capacity));
+        }
+    }
+
+    private void checkLowWatermark() {
+        int depth = queue.size();
+        if (depth <= lowWatermark && overloaded.compareAndSet(true, false)) {
+            logger.info("Ingest queue back below low watermark ({} of {} lines queued)", depth, capacity);
+            eventPublisher.publishEvent(new IngestQueueWatermarkEvent(this, false, depth, capacity));
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverloadPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isOverloaded() {
+        return overloaded.get();
+    }
+
+    public long getAcceptedLines() {
+        return acceptedLines.get();
+    }
+
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    public long getProcessedLines() {
+        return processedLines.get();
+    }
+}
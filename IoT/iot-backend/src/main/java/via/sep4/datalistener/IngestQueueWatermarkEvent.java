@@ -0,0 +1,32 @@
+package via.sep4.datalistener;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when the ingest queue fills past its high watermark, and again
+ * when it has drained back below its low watermark.
+ */
+public class IngestQueueWatermarkEvent extends ApplicationEvent {
+    private final boolean overloaded;
+    private final int queueDepth;
+    private final int capacity;
+
+    public IngestQueueWatermarkEvent(Object source, boolean overloaded, int queueDepth, int capacity) {
+        super(source);
+        this.overloaded = overloaded;
+        this.queueDepth = queueDepth;
+        this.capacity = capacity;
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,60 @@
+package via.sep4.datalistener;
+
+import java.time.LocalDateTime;
+
+/**
+ * A line or binary-framed reading received from a board, waiting in the
+ * {@link IngestQueue}. Binary readings arrive already decoded and carry the
+ * device id and sequence number from their frame.
+ */
+public class IngestRecord {
+    private final String line;
+    private final ESPReading reading;
+    private final long deviceId;
+    private final long sequence;
+    private final LocalDateTime receivedAt;
+
+    public IngestRecord(String line, LocalDateTime receivedAt) {
+        this.line = line;
+        this.reading = null;
+        this.deviceId = -1;
+        this.sequence = -1;
+        this.receivedAt = receivedAt;
+    }
+
+    public IngestRecord(ESPReading reading, long deviceId, long sequence, LocalDateTime receivedAt) {
+        this.line = null;
+        this.reading = reading;
+        this.deviceId = deviceId;
+        this.sequence = sequence;
+        this.receivedAt = receivedAt;
+    }
+
+    public boolean isDecoded() {
+        return reading != null;
+    }
+
+    /**
+     * Returns the received text line, or the text-protocol rendering of a
+     * binary reading.
+     */
+    public String getLine() {
+        return line != null ? line : reading.toLine();
+    }
+
+    public ESPReading getReading() {
+        return reading;
+    }
+
+    public long getDeviceId() {
+        return deviceId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+}
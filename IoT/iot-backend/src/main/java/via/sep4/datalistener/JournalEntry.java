@@ -0,0 +1,40 @@
+package via.sep4.datalistener;
+
+import java.time.LocalDateTime;
+
+/**
+ * A line read back from the {@link IngestJournal}.
+ */
+public class JournalEntry {
+    private final long sequence;
+    private final LocalDateTime receivedAt;
+    private final Long experimentId;
+    private final String line;
+
+    public JournalEntry(long sequence, LocalDateTime receivedAt, Long experimentId, String line) {
+        this.sequence = sequence;
+        this.receivedAt = receivedAt;
+        this.experimentId = experimentId;
+        this.line = line;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+
+    /**
+     * @return the experiment that was active when the line arrived, or null if
+     *         there was none
+     */
+    public Long getExperimentId() {
+        return experimentId;
+    }
+
+    public String getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,187 @@
+package via.sep4.datalistener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.service.MeasurementWriteBehindService;
+
+/**
+ * Drives the database writes from the {@link IngestJournal} when it is enabled.
+ * Entries are read in batches, turned into measurements for the experiment
+ * that was active when the line arrived by {@link ESPDataService} and written
+ * in one transaction; the checkpoint only moves once that transaction has
+ * committed. A failed batch is retried until the database is back.
+ * <p>
+ * Each measurement carries the sequence of its journal entry, and entries that
+ * are already stored are skipped, so the journal can be replayed again, e.g.
+ * after the validation rules changed. The checkpoint never moves back, and
+ * invalid values of entries before it are not recorded a second time.
+ */
+@Component
+public class JournalReplayer {
+    private static final Logger logger = LoggerFactory.getLogger(JournalReplayer.class);
+
+    private static final long IDLE_WAIT_MS = 200;
+
+    private final IngestJournal journal;
+    private final ESPDataService espDataService;
+    private final MeasurementWriteBehindService measurementWriteBehind;
+    private final int batchSize;
+    private final long retryBackoffMs;
+
+    private final AtomicLong replayedEntries = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong rewindTo = new AtomicLong(-1);
+
+    private volatile boolean running;
+    private Thread replayer;
+
+    @Autowired
+    public JournalReplayer(IngestJournal journal, ESPDataService espDataService,
+            MeasurementWriteBehindService measurementWriteBehind,
+            @Value("${esp.journal.replay-batch-size:500}") int batchSize,
+            @Value("${esp.journal.retry-backoff-ms:1000}") long retryBackoffMs) {
+        this.journal = journal;
+        this.espDataService = espDataService;
+        this.measurementWriteBehind = measurementWriteBehind;
+        this.batchSize = batchSize;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!journal.isEnabled()) {
+            return;
+        }
+
+        running = true;
+        replayer = new Thread(this::runReplayer, "esp-journal-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (replayer == null) {
+            return;
+        }
+        running = false;
+        replayer.interrupt();
+        replayer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Replays the journal again from the given sequence number. Entries that
+     * are now valid are stored; those already stored are left as they are.
+     * A replay cut short by a restart is not resumed.
+     */
+    public void replayFrom(long sequence) {
+        rewindTo.set(Math.max(0, sequence));
+    }
+
+    private void runReplayer() {
+        IngestJournal.Reader reader;
+        try {
+            reader = journal.openReader(journal.getCheckpoint());
+        } catch (IOException e) {
+            logger.error("Could not open the ingest journal for replay", e);
+            return;
+        }
+        logger.info("Replaying ingest journal from sequence {}", reader.getNextSequence());
+
+        List<PlantMeasurements> batch = new ArrayList<>();
+        long batchEnd = -1;
+
+        while (running) {
+            try {
+                long rewind = rewindTo.getAndSet(-1);
+                if (rewind >= 0) {
+                    reader.seek(rewind);
+                    batch.clear();
+                    batchEnd = -1;
+                    logger.info("Replaying ingest journal again from sequence {}", reader.getNextSequence());
+                }
+
+                if (batchEnd < 0) {
+                    int entries = readBatch(reader, batch);
+                    if (entries == 0) {
+                        journal.awaitAppend(reader.getNextSequence(), IDLE_WAIT_MS);
+                        continue;
+                    }
+                    replayedEntries.addAndGet(entries);
+                    batchEnd = reader.getNextSequence();
+                }
+
+                if (batch.isEmpty() || measurementWriteBehind.writeBatch(batch)) {
+                    if (batchEnd > journal.getCheckpoint()) {
+                        journal.checkpoint(batchEnd);
+                    }
+                    batch.clear();
+                    batchEnd = -1;
+                } else {
+                    failedBatches.incrementAndGet();
+                    // the rolled back insert may have assigned ids
+                    batch.forEach(measurement -> measurement.setId(null));
+                    Thread.sleep(retryBackoffMs);
+                }
+            } catch (InterruptedException e) {
+                // shutting down, the checkpoint marks where to resume
+            } catch (IOException e) {
+                logger.error("Ingest journal replay failed", e);
+                sleepQuietly(retryBackoffMs);
+            }
+        }
+    }
+
+    private int readBatch(IngestJournal.Reader reader, List<PlantMeasurements> batch) throws IOException {
+        int entries = 0;
+        JournalEntry entry;
+        while (entries < batchSize && (entry = reader.next()) != null) {
+            entries++;
+            try {
+                boolean replayedBefore = entry.getSequence() < journal.getCheckpoint();
+                PlantMeasurements measurement = espDataService.toMeasurement(entry.getLine(), entry.getReceivedAt(),
+                        entry.getExperimentId(), !replayedBefore);
+                if (measurement != null) {
+                    measurement.setJournalSequence(entry.getSequence());
+                    batch.add(measurement);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error processing journal entry {}: {}", entry.getSequence(), entry.getLine(), e);
+            }
+        }
+        return entries;
+    }
+
+    private void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getReplayedEntries() {
+        return replayedEntries.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public long getLag() {
+        return journal.getLastSequence() - journal.getCheckpoint() + 1;
+    }
+}
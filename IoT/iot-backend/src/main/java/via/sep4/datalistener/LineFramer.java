@@ -0,0 +1,64 @@
+package via.sep4.datalistener;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Splits a byte stream into newline-terminated lines.
+ * One instance is kept per connection and holds only the bytes of the line
+ * that has not been completed yet, so the read buffer itself can be shared.
+ */
+public class LineFramer {
+    private final byte[] line;
+    private int length = 0;
+    private boolean discarding = false;
+
+    public LineFramer(int maxLineLength) {
+        this.line = new byte[maxLineLength];
+    }
+
+    /**
+     * Consumes all remaining bytes of the buffer and hands every complete line
+     * (without the trailing \r\n) to the consumer. Lines longer than the maximum
+     * length are dropped up to the next newline.
+     *
+     * @return number of oversized lines that were dropped
+     */
+    public int feed(ByteBuffer buffer, Consumer<String> lineConsumer) {
+        int dropped = 0;
+
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+
+            if (b == '\n') {
+                if (discarding) {
+                    discarding = false;
+                    dropped++;
+                } else {
+                    int end = length;
+                    if (end > 0 && line[end - 1] == '\r') {
+                        end--;
+                    }
+                    if (end > 0) {
+                        lineConsumer.accept(new String(line, 0, end, StandardCharsets.UTF_8));
+                    }
+                }
+                length = 0;
+            } else if (!discarding) {
+                if (length < line.length) {
+                    line[length++] = b;
+                } else {
+                    discarding = true;
+                    length = 0;
+                }
+            }
+        }
+
+        return dropped;
+    }
+
+    public int pendingBytes() {
+        return length;
+    }
+}
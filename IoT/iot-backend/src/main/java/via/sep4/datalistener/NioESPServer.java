@@ -0,0 +1,282 @@
+package via.sep4.datalistener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import via.sep4.datalistener.IngestQueue.OverloadPolicy;
+
+/**
+ * Non-blocking variant of the ESP TCP server. The calling thread accepts
+ * connections and hands them round-robin to a small, fixed number of event
+ * loops, each owning a {@link Selector} and a single read buffer shared by all
+ * of its connections. Each connection negotiates text or binary framing
+ * through its {@link ConnectionDecoder}.
+ * <p>
+ * Under the BLOCK overload policy an event loop never waits for the ingest
+ * queue. Once the queue passes its high watermark, or a record does not fit,
+ * the loop stops reading from its connections and keeps the records it could
+ * not hand over, so the kernel's socket buffers push back on the senders.
+ * Reading resumes when the queue has drained below its low watermark.
+ */
+public class NioESPServer {
+    private static final Logger logger = LoggerFactory.getLogger(NioESPServer.class);
+
+    private static final long ACCEPT_RETRY_DELAY_MS = 100;
+
+    private final int port;
+    private final int eventLoopCount;
+    private final int readBufferSize;
+    private final int maxLineLength;
+    private final IngestQueue ingestQueue;
+    private final IngestMetrics metrics;
+
+    private final AtomicInteger connectedClients = new AtomicInteger();
+    private volatile EventLoop[] loops = new EventLoop[0];
+
+    public NioESPServer(int port, int eventLoopCount, int readBufferSize, int maxLineLength,
+            IngestQueue ingestQueue, IngestMetrics metrics) {
+        this.port = port;
+        this.eventLoopCount = Math.max(1, eventLoopCount);
+        this.readBufferSize = readBufferSize;
+        this.maxLineLength = maxLineLength;
+        this.ingestQueue = ingestQueue;
+        this.metrics = metrics;
+    }
+
+    public void start() throws IOException {
+        EventLoop[] loops = new EventLoop[eventLoopCount];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(Selector.open());
+            Thread thread = new Thread(loops[i], "esp-nio-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        this.loops = loops;
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            logger.info("ESP NIO server listening on port {} with {} event loop(s)", port, loops.length);
+
+            int next = 0;
+            while (serverChannel.isOpen()) {
+                SocketChannel channel;
+                try {
+                    channel = serverChannel.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                } catch (IOException e) {
+                    // typically out of file descriptors; give connections time to close
+                    logger.warn("Could not accept client connection: {}", e.getMessage());
+                    pauseAccepting();
+                    continue;
+                }
+
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                } catch (IOException e) {
+                    logger.warn("Could not set up client channel: {}", e.getMessage());
+                    closeQuietly(channel);
+                    continue;
+                }
+
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            }
+        }
+    }
+
+    private static void pauseAccepting() {
+        try {
+            Thread.sleep(ACCEPT_RETRY_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Error closing channel: {}", e.getMessage());
+        }
+    }
+
+    public int getConnectedClients() {
+        return connectedClients.get();
+    }
+
+    /**
+     * Lets event loops that stopped reading because the ingest queue was full
+     * try again. Called when the queue drains below its low watermark.
+     */
+    public void resumeReads() {
+        for (EventLoop loop : loops) {
+            loop.requestResume();
+        }
+    }
+
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(readBufferSize);
+        // records the ingest queue had no room for, in arrival order
+        private final Deque<IngestRecord> backlog = new ArrayDeque<>();
+        private boolean readsPaused;
+        private volatile boolean resumeRequested;
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        void requestResume() {
+            resumeRequested = true;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (selector.isOpen()) {
+                try {
+                    selector.select();
+                    registerPending();
+                    if (resumeRequested) {
+                        resumeRequested = false;
+                        resumeReads();
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+
+                        if (!readsPaused && key.isValid() && key.isReadable()) {
+                            read(key);
+                            if (mustPause()) {
+                                pauseReads();
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.error("ESP event loop error", e);
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    channel.register(selector, readsPaused ? 0 : SelectionKey.OP_READ,
+                            new ConnectionDecoder(maxLineLength, this::dispatch));
+                    connectedClients.incrementAndGet();
+                    logger.info("Client connected from {}", channel.getRemoteAddress());
+                } catch (IOException e) {
+                    logger.warn("Could not register client channel: {}", e.getMessage());
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        private void read(SelectionKey key) {
+            SocketChannel channel = (SocketChannel) key.channel();
+            ConnectionDecoder decoder = (ConnectionDecoder) key.attachment();
+
+            try {
+                int read = 0;
+                while (backlog.isEmpty() && (read = channel.read(readBuffer)) > 0) {
+                    readBuffer.flip();
+                    int dropped = decoder.feed(readBuffer);
+                    if (dropped > 0) {
+                        metrics.parseFailure("line_too_long", dropped);
+                        logger.warn("Dropped {} line(s) longer than {} bytes from {}", dropped, maxLineLength,
+                                channel.getRemoteAddress());
+                    }
+                    readBuffer.clear();
+                }
+
+                if (read < 0) {
+                    close(key);
+                }
+            } catch (ProtocolException e) {
+                metrics.parseFailure("bad_frame");
+                logger.warn("Protocol error: {}", e.getMessage());
+                close(key);
+            } catch (IOException e) {
+                logger.warn("Connection error: {}", e.getMessage());
+                close(key);
+            }
+        }
+
+        private void dispatch(IngestRecord record) {
+            try {
+                if (!backlog.isEmpty() || !ingestQueue.offer(record)) {
+                    backlog.add(record);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error processing line: {}", record.getLine(), e);
+            }
+        }
+
+        private boolean mustPause() {
+            return !backlog.isEmpty()
+                    || (ingestQueue.getPolicy() == OverloadPolicy.BLOCK && ingestQueue.isOverloaded());
+        }
+
+        private void pauseReads() {
+            setReadInterest(false);
+            readsPaused = true;
+            logger.debug("Ingest queue overloaded, pausing reads on {} connection(s)", selector.keys().size());
+        }
+
+        private void resumeReads() {
+            while (!backlog.isEmpty() && ingestQueue.offer(backlog.peek())) {
+                backlog.poll();
+            }
+            if (readsPaused && !mustPause()) {
+                setReadInterest(true);
+                readsPaused = false;
+                logger.debug("Resuming reads on {} connection(s)", selector.keys().size());
+            }
+        }
+
+        private void setReadInterest(boolean reading) {
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid()) {
+                    key.interestOps(reading ? SelectionKey.OP_READ : 0);
+                }
+            }
+        }
+
+        private void close(SelectionKey key) {
+            key.cancel();
+            closeQuietly(key.channel());
+            connectedClients.decrementAndGet();
+            logger.info("Client disconnected");
+        }
+
+    }
+}
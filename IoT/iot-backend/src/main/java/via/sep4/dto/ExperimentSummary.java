@@ -0,0 +1,20 @@
+package via.sep4.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * An experiment with the size and time span of its data, as shown on the
+ * experiment list. The timestamps are null while the experiment has no
+ * measurements.
+ */
+public record ExperimentSummary(
+        Long id,
+        String name,
+        String plantSpecies,
+        LocalDate startDate,
+        LocalDate endDate,
+        long measurementCount,
+        LocalDateTime firstTimestamp,
+        LocalDateTime lastTimestamp) {
+}
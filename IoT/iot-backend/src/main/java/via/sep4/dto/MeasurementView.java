@@ -0,0 +1,26 @@
+package via.sep4.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a stored measurement with only its scalar columns, as
+ * returned by the listing and export endpoints. Selected directly by JPQL
+ * constructor expressions, so reading it never loads the experiment nor puts
+ * entities in the persistence context. Serialises to the same JSON as
+ * {@code PlantMeasurements}.
+ */
+public record MeasurementView(
+        Long id,
+        double luftTemperatur,
+        double luftfugtighed,
+        double jordFugtighed,
+        String lysIndstilling,
+        double lysHøjesteIntensitet,
+        double lysLavesteIntensitet,
+        double lysGennemsnit,
+        double afstandTilHøjde,
+        double vandTidFraSidste,
+        double vandMængde,
+        double vandFrekvens,
+        LocalDateTime timestamp) {
+}
@@ -0,0 +1,40 @@
+package via.sep4.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import via.sep4.exceptions.ValidationException;
+
+/**
+ * Position after the last row of a page, for listings ordered by
+ * (timestamp, id). The next page starts at the first row past this key, so
+ * every page is an index seek no matter how deep it is. Clients only see the
+ * encoded form and pass it back unchanged.
+ */
+public record PageCursor(LocalDateTime timestamp, long id) {
+
+    /**
+     * Cursor before every row at or after the given time.
+     */
+    public static PageCursor before(LocalDateTime timestamp) {
+        return new PageCursor(timestamp, Long.MIN_VALUE);
+    }
+
+    public String encode() {
+        String key = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf('|');
+            return new PageCursor(LocalDateTime.parse(key.substring(0, separator)),
+                    Long.parseLong(key.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ValidationException("Invalid cursor: " + token, e);
+        }
+    }
+}
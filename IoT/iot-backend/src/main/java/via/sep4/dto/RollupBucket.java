@@ -0,0 +1,37 @@
+package via.sep4.dto;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One time bucket of rolled-up measurements, with the statistics of every
+ * sensor column keyed by its property name.
+ */
+@Getter
+public class RollupBucket {
+    private final LocalDateTime bucketStart;
+    private long count;
+    private final Map<String, SensorStats> sensors = new LinkedHashMap<>();
+
+    public RollupBucket(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public void addSensor(String sensor, SensorStats stats, long sampleCount) {
+        sensors.put(sensor, stats);
+        count = Math.max(count, sampleCount);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SensorStats {
+        private final double min;
+        private final double max;
+        private final double avg;
+        private final double last;
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,7 +16,8 @@ import lombok.Setter;
 @Setter
 public class InvalidMeasurement {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invalid_measurement_seq")
+    @SequenceGenerator(name = "invalid_measurement_seq", sequenceName = "invalid_measurement_seq", allocationSize = 50)
     private Long id;
 
     private Long experimentId;
@@ -27,4 +29,11 @@ public class InvalidMeasurement {
     private String validationError;
 
     private LocalDateTime receivedAt;
+
+    // identical errors collapsed into this row by InvalidMeasurementSink
+    private Integer occurrenceCount = 1;
+
+    private LocalDateTime firstSeenAt;
+
+    private LocalDateTime lastSeenAt;
 }
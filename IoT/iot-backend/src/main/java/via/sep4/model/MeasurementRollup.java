@@ -0,0 +1,61 @@
+package via.sep4.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Aggregate of one sensor column over one time bucket of an experiment. Rows
+ * are written by {@code MeasurementRollupService} in the transaction that
+ * stores the measurements, and are only read through JPA.
+ */
+@Entity
+@IdClass(MeasurementRollup.Key.class)
+@Getter
+@Setter
+public class MeasurementRollup {
+    @Id
+    private Long experimentId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private RollupGranularity granularity;
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    // property name of the column on PlantMeasurements, e.g. luftTemperatur
+    @Id
+    private String sensor;
+
+    private long sampleCount;
+    private double minValue;
+    private double maxValue;
+    private double sumValue;
+
+    // value of the newest measurement in the bucket
+    private double lastValue;
+    private LocalDateTime lastTimestamp;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long experimentId;
+        private RollupGranularity granularity;
+        private LocalDateTime bucketStart;
+        private String sensor;
+    }
+}
@@ -0,0 +1,21 @@
+package via.sep4.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Number of transactions that stored measurements of an experiment. Bumped by
+ * {@code MeasurementRollupService} in the storing transaction, so it changes
+ * with every stored batch and tells whether an experiment's data changed.
+ */
+@Entity
+@Getter
+@Setter
+public class MeasurementVersion {
+    @Id
+    private Long experimentId;
+
+    private long version;
+}
@@ -3,12 +3,15 @@ package via.sep4.model;
 import java.time.LocalDate;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -17,7 +20,8 @@ import lombok.Setter;
 @Setter
 public class PlantExperiment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "plant_experiment_seq")
+    @SequenceGenerator(name = "plant_experiment_seq", sequenceName = "plant_experiment_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -30,6 +34,8 @@ public class PlantExperiment {
 
     private LocalDate endDate;
 
+    // never serialised: listing experiments would load every measurement
+    @JsonIgnore
     @OneToMany(mappedBy = "experiment", cascade = CascadeType.ALL)
     private List<PlantMeasurements> measurements;
 }
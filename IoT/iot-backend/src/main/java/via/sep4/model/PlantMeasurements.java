@@ -8,16 +8,25 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * On PostgreSQL the table is partitioned by month on {@code timestamp}, with
+ * its indexes and the foreign key to the experiment created by
+ * V2__partition_plant_measurements.sql. They are not declared here because
+ * Hibernate cannot see constraints on a partitioned table and would try to
+ * add them again on every start.
+ */
 @Entity
 @Getter
 @Setter
 public class PlantMeasurements {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "plant_measurements_seq")
+    @SequenceGenerator(name = "plant_measurements_seq", sequenceName = "plant_measurements_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
-    @JoinColumn(name = "experiment_id", nullable = false)
+    // only the id is needed when storing; reads use MeasurementView and never touch the experiment
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "experiment_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     @JsonIgnore
     private PlantExperiment experiment;
 
@@ -36,5 +45,9 @@ public class PlantMeasurements {
     private double vandMængde;
     private double vandFrekvens;
 
+    @Column(nullable = false)
     private LocalDateTime timestamp;
+
+    // set on rows stored from the ingest journal, unique together with timestamp
+    private Long journalSequence;
 }
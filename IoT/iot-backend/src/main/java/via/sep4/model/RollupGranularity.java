@@ -0,0 +1,31 @@
+package via.sep4.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket sizes of {@link MeasurementRollup}, from finest to coarsest.
+ */
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    /**
+     * @return the number of buckets touched by the range from start to end
+     */
+    public long bucketCount(LocalDateTime start, LocalDateTime end) {
+        return Duration.between(bucketStart(start), bucketStart(end)).dividedBy(unit.getDuration()) + 1;
+    }
+}
@@ -42,7 +42,11 @@ public class DataValidator {
             return ValidationResult.VALIDATION_ERROR_LUFT_TEMPERATUR;
         }
 
-        if (temperature < 10.0f || temperature > 50.0f) {
+        return validateTemperature(temperature.doubleValue());
+    }
+
+    public ValidationResult validateTemperature(double temperature) {
+        if (temperature < 10.0 || temperature > 50.0) {
             return ValidationResult.VALIDATION_ERROR_LUFT_TEMPERATUR;
         }
 
@@ -54,6 +58,10 @@ public class DataValidator {
             return ValidationResult.VALIDATION_ERROR_LUFTFUGTIGHED;
         }
 
+        return validateHumidity(humidity.doubleValue());
+    }
+
+    public ValidationResult validateHumidity(double humidity) {
         if (humidity < 0 || humidity > 100) {
             return ValidationResult.VALIDATION_ERROR_LUFTFUGTIGHED;
         }
@@ -66,6 +74,10 @@ public class DataValidator {
             return ValidationResult.VALIDATION_ERROR_JORD_FUGTIGHED;
         }
 
+        return validateSoilMoisture(soilMoisture.doubleValue());
+    }
+
+    public ValidationResult validateSoilMoisture(double soilMoisture) {
         if (soilMoisture < 0 || soilMoisture > 100) {
             return ValidationResult.VALIDATION_ERROR_JORD_FUGTIGHED;
         }
@@ -98,7 +110,15 @@ public class DataValidator {
     }
 
     public ValidationResult validateHeight(Integer height) {
-        if (height != null && height <= 0) {
+        if (height == null) {
+            return ValidationResult.VALIDATION_SUCCESS;
+        }
+
+        return validateHeight(height.intValue());
+    }
+
+    public ValidationResult validateHeight(int height) {
+        if (height <= 0) {
             return ValidationResult.VALIDATION_ERROR_AFSTAND_TIL_HØJDE;
         }
 
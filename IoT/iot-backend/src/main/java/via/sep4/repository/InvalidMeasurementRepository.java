@@ -1,13 +1,28 @@
 package via.sep4.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import via.sep4.model.InvalidMeasurement;
 
 @Repository
 public interface InvalidMeasurementRepository extends JpaRepository<InvalidMeasurement, Long> {
-    List<InvalidMeasurement> findByExperimentId(Long experimentId);
+    /**
+     * The page after (afterReceivedAt, afterId) in (receivedAt, id) order,
+     * served by the (experiment_id, received_at, id) index.
+     */
+    @Query("SELECT i FROM InvalidMeasurement i WHERE i.experimentId = :experimentId "
+            + "AND i.receivedAt >= :afterReceivedAt AND (i.receivedAt > :afterReceivedAt OR i.id > :afterId) "
+            + "ORDER BY i.receivedAt, i.id")
+    List<InvalidMeasurement> findPage(
+            @Param("experimentId") Long experimentId,
+            @Param("afterReceivedAt") LocalDateTime afterReceivedAt,
+            @Param("afterId") long afterId,
+            Pageable pageable);
 }
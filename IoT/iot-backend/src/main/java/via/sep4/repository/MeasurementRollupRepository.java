@@ -0,0 +1,28 @@
+package via.sep4.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import via.sep4.model.MeasurementRollup;
+import via.sep4.model.RollupGranularity;
+
+@Repository
+public interface MeasurementRollupRepository extends JpaRepository<MeasurementRollup, MeasurementRollup.Key> {
+    List<MeasurementRollup> findByExperimentIdAndGranularityAndBucketStartBetweenOrderByBucketStart(
+            Long experimentId,
+            RollupGranularity granularity,
+            LocalDateTime startTime,
+            LocalDateTime endTime);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MeasurementRollup r WHERE r.experimentId = :experimentId")
+    int deleteByExperimentId(@Param("experimentId") Long experimentId);
+}
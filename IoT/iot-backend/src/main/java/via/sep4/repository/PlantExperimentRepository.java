@@ -4,8 +4,10 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import via.sep4.dto.ExperimentSummary;
 import via.sep4.model.PlantExperiment;
 
 @Repository
@@ -13,4 +15,18 @@ public interface PlantExperimentRepository extends JpaRepository<PlantExperiment
     List<PlantExperiment> findByPlantSpecies(String plantSpecies);
 
     Optional<PlantExperiment> findByName(String name);
+
+    /**
+     * One query for all experiments. The count adds up the day rollups of a
+     * single sensor, which hold one sample per stored measurement, so it reads
+     * one row per experiment day instead of every measurement. First and last
+     * timestamps are min/max seeks on the (experiment_id, timestamp) index.
+     */
+    @Query("SELECT new via.sep4.dto.ExperimentSummary(e.id, e.name, e.plantSpecies, e.startDate, e.endDate, "
+            + "(SELECT COALESCE(SUM(r.sampleCount), 0) FROM MeasurementRollup r WHERE r.experimentId = e.id "
+            + "AND r.granularity = via.sep4.model.RollupGranularity.DAY AND r.sensor = 'luftTemperatur'), "
+            + "(SELECT MIN(m.timestamp) FROM PlantMeasurements m WHERE m.experiment.id = e.id), "
+            + "(SELECT MAX(m.timestamp) FROM PlantMeasurements m WHERE m.experiment.id = e.id)) "
+            + "FROM PlantExperiment e ORDER BY e.id")
+    List<ExperimentSummary> findSummaries();
 }
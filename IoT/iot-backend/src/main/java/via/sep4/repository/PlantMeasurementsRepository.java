@@ -1,20 +1,64 @@
 package via.sep4.repository;
 
+import via.sep4.dto.MeasurementView;
 import via.sep4.model.PlantMeasurements;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface PlantMeasurementsRepository extends JpaRepository<PlantMeasurements, Long> {
-    List<PlantMeasurements> findByExperimentId(Long experimentId);
+    // m.experiment.id is the foreign key column, so no join to plant_experiment
+    String SELECT_VIEW = "SELECT new via.sep4.dto.MeasurementView(m.id, m.luftTemperatur, m.luftfugtighed, "
+            + "m.jordFugtighed, m.lysIndstilling, m.lysHøjesteIntensitet, m.lysLavesteIntensitet, m.lysGennemsnit, "
+            + "m.afstandTilHøjde, m.vandTidFraSidste, m.vandMængde, m.vandFrekvens, m.timestamp) "
+            + "FROM PlantMeasurements m ";
+
+    /**
+     * The page after (afterTimestamp, afterId) up to endTime, in (timestamp, id)
+     * order. The leading timestamp bound lets the (experiment_id, timestamp)
+     * index seek straight to the cursor.
+     */
+    @Query(SELECT_VIEW + "WHERE m.experiment.id = :experimentId AND m.timestamp >= :afterTimestamp "
+            + "AND (m.timestamp > :afterTimestamp OR m.id > :afterId) AND m.timestamp <= :endTime "
+            + "ORDER BY m.timestamp, m.id")
+    List<MeasurementView> findViewPage(
+            @Param("experimentId") Long experimentId,
+            @Param("afterTimestamp") LocalDateTime afterTimestamp,
+            @Param("afterId") long afterId,
+            @Param("endTime") LocalDateTime endTime,
+            Pageable pageable);
 
-    List<PlantMeasurements> findByExperimentIdAndTimestampBetween(
-            Long experimentId,
-            LocalDateTime startTime,
+    /**
+     * Forward-only stream for exports. Must be consumed and closed inside a
+     * transaction; rows are fetched from the database in batches.
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true") })
+    @Query(SELECT_VIEW + "WHERE m.experiment.id = :experimentId "
+            + "AND m.timestamp BETWEEN :startTime AND :endTime ORDER BY m.timestamp, m.id")
+    Stream<MeasurementView> streamViews(
+            @Param("experimentId") Long experimentId,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime);
+
+    boolean existsByExperimentIdAndTimestampBetween(Long experimentId, LocalDateTime startTime,
             LocalDateTime endTime);
 
-    List<PlantMeasurements> findTop10ByExperimentIdOrderByTimestampDesc(Long experimentId);
+    @Query(SELECT_VIEW + "WHERE m.experiment.id = :experimentId ORDER BY m.timestamp DESC")
+    List<MeasurementView> findLatestViewsByExperimentId(@Param("experimentId") Long experimentId, Pageable pageable);
+
+    @Query("SELECT m.journalSequence FROM PlantMeasurements m WHERE m.journalSequence BETWEEN :first AND :last")
+    List<Long> findJournalSequencesBetween(@Param("first") long first, @Param("last") long last);
 }
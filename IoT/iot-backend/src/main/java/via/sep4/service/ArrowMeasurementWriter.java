@@ -0,0 +1,252 @@
+package via.sep4.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.flatbuf.Buffer;
+import org.apache.arrow.flatbuf.DictionaryBatch;
+import org.apache.arrow.flatbuf.DictionaryEncoding;
+import org.apache.arrow.flatbuf.DictionaryKind;
+import org.apache.arrow.flatbuf.Endianness;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.FloatingPoint;
+import org.apache.arrow.flatbuf.Int;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.MetadataVersion;
+import org.apache.arrow.flatbuf.Precision;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.TimeUnit;
+import org.apache.arrow.flatbuf.Timestamp;
+import org.apache.arrow.flatbuf.Type;
+import org.apache.arrow.flatbuf.Utf8;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+
+import via.sep4.dto.MeasurementView;
+
+/**
+ * Writes export rows as an Arrow IPC stream: the schema, then one record
+ * batch per batch of rows, each preceded by a delta dictionary batch when it
+ * brings lysIndstilling values not seen before. Only the message metadata
+ * comes from arrow-format; the buffers are laid out here, so no Arrow
+ * allocator is involved.
+ */
+final class ArrowMeasurementWriter {
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final long DICTIONARY_ID = 0;
+    private static final int ALIGNMENT = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final MeasurementBatch batch;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> newEntries = new ArrayList<>();
+
+    ArrowMeasurementWriter(OutputStream out, int batchRows) throws IOException {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        this.batch = new MeasurementBatch(batchRows);
+        writeSchema();
+        this.out.flush();
+    }
+
+    void write(MeasurementView m) throws IOException {
+        if (batch.add(m)) {
+            writeBatch();
+        }
+    }
+
+    /**
+     * Writes the last batch and the end of stream marker. Does not close the
+     * stream.
+     */
+    void finish() throws IOException {
+        if (batch.size() > 0) {
+            writeBatch();
+        }
+        out.write(littleEndian(8).putInt(CONTINUATION).putInt(0).array());
+        out.flush();
+    }
+
+    private void writeSchema() throws IOException {
+        FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+        int[] fields = new int[MeasurementBatch.COLUMNS.length];
+        for (int column = 0; column < fields.length; column++) {
+            int name = builder.createString(MeasurementBatch.COLUMNS[column]);
+            boolean nullable = false;
+            byte typeType;
+            int type;
+            int dictionaryEncoding = 0;
+            if (column == MeasurementBatch.TIMESTAMP) {
+                typeType = Type.Timestamp;
+                type = Timestamp.createTimestamp(builder, TimeUnit.MICROSECOND, 0);
+            } else if (column == MeasurementBatch.LYS_INDSTILLING) {
+                nullable = true;
+                typeType = Type.Utf8;
+                Utf8.startUtf8(builder);
+                type = Utf8.endUtf8(builder);
+                int indexType = Int.createInt(builder, 32, true);
+                dictionaryEncoding = DictionaryEncoding.createDictionaryEncoding(builder, DICTIONARY_ID, indexType,
+                        false, DictionaryKind.DenseArray);
+            } else {
+                typeType = Type.FloatingPoint;
+                type = FloatingPoint.createFloatingPoint(builder, Precision.DOUBLE);
+            }
+            int children = Field.createChildrenVector(builder, new int[0]);
+            fields[column] = Field.createField(builder, name, nullable, typeType, type, dictionaryEncoding, children,
+                    0);
+        }
+        int schema = Schema.createSchema(builder, Endianness.Little, Schema.createFieldsVector(builder, fields), 0,
+                0);
+        writeMessage(builder, MessageHeader.Schema, schema, new Body());
+    }
+
+    private void writeBatch() throws IOException {
+        int rows = batch.size();
+        int[] indices = new int[rows];
+        byte[] validity = new byte[(rows + 7) / 8];
+        int nullCount = 0;
+        for (int i = 0; i < rows; i++) {
+            String value = batch.lysIndstilling[i];
+            if (value == null) {
+                nullCount++;
+                continue;
+            }
+            validity[i >>> 3] |= (byte) (1 << (i & 7));
+            indices[i] = dictionary.computeIfAbsent(value, v -> {
+                newEntries.add(v);
+                return dictionary.size();
+            });
+        }
+        if (!newEntries.isEmpty()) {
+            writeDictionaryBatch();
+        }
+
+        Body body = new Body();
+        for (int column = 0; column < MeasurementBatch.COLUMNS.length; column++) {
+            if (column == MeasurementBatch.TIMESTAMP) {
+                body.node(rows, 0);
+                body.buffer(new byte[0]);
+                ByteBuffer timestamps = littleEndian(rows * Long.BYTES);
+                timestamps.asLongBuffer().put(batch.timestamps, 0, rows);
+                body.buffer(timestamps.array());
+            } else if (column == MeasurementBatch.LYS_INDSTILLING) {
+                body.node(rows, nullCount);
+                // a validity buffer may be left empty when nothing is null
+                body.buffer(nullCount > 0 ? validity : new byte[0]);
+                ByteBuffer values = littleEndian(rows * Integer.BYTES);
+                values.asIntBuffer().put(indices, 0, rows);
+                body.buffer(values.array());
+            } else {
+                body.node(rows, 0);
+                body.buffer(new byte[0]);
+                ByteBuffer values = littleEndian(rows * Double.BYTES);
+                values.asDoubleBuffer().put(batch.values[column], 0, rows);
+                body.buffer(values.array());
+            }
+        }
+
+        FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+        writeMessage(builder, MessageHeader.RecordBatch, body.recordBatch(builder, rows), body);
+        batch.clear();
+        // the client receives each batch as soon as it is complete
+        out.flush();
+    }
+
+    /**
+     * Writes the lysIndstilling values first seen in this batch. The first
+     * dictionary batch defines the dictionary and later ones extend it.
+     */
+    private void writeDictionaryBatch() throws IOException {
+        boolean delta = dictionary.size() > newEntries.size();
+        ByteBuffer offsets = littleEndian((newEntries.size() + 1) * Integer.BYTES);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        offsets.putInt(0);
+        for (String value : newEntries) {
+            data.write(value.getBytes(StandardCharsets.UTF_8));
+            offsets.putInt(data.size());
+        }
+
+        Body body = new Body();
+        body.node(newEntries.size(), 0);
+        body.buffer(new byte[0]);
+        body.buffer(offsets.array());
+        body.buffer(data.toByteArray());
+
+        FlatBufferBuilder builder = new FlatBufferBuilder(256);
+        int recordBatch = body.recordBatch(builder, newEntries.size());
+        int dictionaryBatch = DictionaryBatch.createDictionaryBatch(builder, DICTIONARY_ID, recordBatch, delta);
+        writeMessage(builder, MessageHeader.DictionaryBatch, dictionaryBatch, body);
+        newEntries.clear();
+    }
+
+    /**
+     * Writes an encapsulated message: the continuation marker, the padded
+     * metadata length, the flatbuffer metadata and the body.
+     */
+    private void writeMessage(FlatBufferBuilder builder, byte headerType, int header, Body body) throws IOException {
+        int message = Message.createMessage(builder, MetadataVersion.V5, headerType, header, body.bytes.size(), 0);
+        builder.finish(message);
+        byte[] metadata = builder.sizedByteArray();
+        int paddedLength = align(8 + metadata.length) - 8;
+
+        out.write(littleEndian(8).putInt(CONTINUATION).putInt(paddedLength).array());
+        out.write(metadata);
+        out.write(new byte[paddedLength - metadata.length]);
+        body.bytes.writeTo(out);
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static ByteBuffer littleEndian(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * A message body with the field nodes and buffer locations its record
+     * batch metadata describes. Buffers are padded to the alignment.
+     */
+    private static final class Body {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<long[]> nodes = new ArrayList<>();
+        private final List<long[]> buffers = new ArrayList<>();
+
+        void node(long length, long nullCount) {
+            nodes.add(new long[] { length, nullCount });
+        }
+
+        void buffer(byte[] data) {
+            buffers.add(new long[] { bytes.size(), data.length });
+            bytes.write(data, 0, data.length);
+            bytes.write(new byte[align(data.length) - data.length], 0, align(data.length) - data.length);
+        }
+
+        int recordBatch(FlatBufferBuilder builder, long length) {
+            // flatbuffers builds vectors back to front
+            RecordBatch.startNodesVector(builder, nodes.size());
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                FieldNode.createFieldNode(builder, nodes.get(i)[0], nodes.get(i)[1]);
+            }
+            int nodesVector = builder.endVector();
+            RecordBatch.startBuffersVector(builder, buffers.size());
+            for (int i = buffers.size() - 1; i >= 0; i--) {
+                Buffer.createBuffer(builder, buffers.get(i)[0], buffers.get(i)[1]);
+            }
+            int buffersVector = builder.endVector();
+            return RecordBatch.createRecordBatch(builder, length, nodesVector, buffersVector, 0, 0);
+        }
+    }
+}
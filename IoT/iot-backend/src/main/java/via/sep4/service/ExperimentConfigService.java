@@ -1,10 +1,12 @@
 package via.sep4.service;
 
+import java.util.Objects;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import via.sep4.model.PlantExperiment;
@@ -24,17 +26,24 @@ public class ExperimentConfigService {
     @Autowired
     private SystemConfigurationRepository configRepository;
 
-    public synchronized Long getCurrentExperimentId() {
-        return configRepository.findById(CURRENT_EXPERIMENT_KEY)
-                .map(config -> {
-                    try {
-                        return Long.parseLong(config.getConfigValue());
-                    } catch (NumberFormatException e) {
-                        logger.error("Invalid experiment ID in configuration: {}", config.getConfigValue());
-                        return DEFAULT_EXPERIMENT_ID;
-                    }
-                })
-                .orElse(DEFAULT_EXPERIMENT_ID);
+    /**
+     * Snapshot of the active experiment read by the ingest path without locking
+     * or querying. Replaced as a whole whenever the active experiment changes.
+     */
+    private volatile ActiveExperiment active;
+
+    private static final class ActiveExperiment {
+        private final Long id;
+        private final PlantExperiment experiment;
+
+        private ActiveExperiment(Long id, PlantExperiment experiment) {
+            this.id = id;
+            this.experiment = experiment;
+        }
+    }
+
+    public Long getCurrentExperimentId() {
+        return snapshot().id;
     }
 
     public synchronized boolean setCurrentExperimentId(Long experimentId) {
@@ -47,6 +56,8 @@ public class ExperimentConfigService {
             config.setConfigValue(experimentId.toString());
             configRepository.save(config);
 
+            active = new ActiveExperiment(experimentId, experiment.get());
+
             logger.info("Current experiment set to ID: {}, Name: {}",
                     experimentId, experiment.get().getName());
             return true;
@@ -57,8 +68,64 @@ public class ExperimentConfigService {
     }
 
     public Optional<PlantExperiment> getCurrentExperiment() {
-        Long currentId = getCurrentExperimentId();
-        Optional<PlantExperiment> experiment = experimentRepository.findById(currentId);
-        return experiment;
+        return Optional.ofNullable(snapshot().experiment);
+    }
+
+    /**
+     * Looks up an experiment that was active at some point, e.g. when a
+     * journaled line arrived. Served from the snapshot while it is still the
+     * active one.
+     */
+    public Optional<PlantExperiment> getExperiment(Long experimentId) {
+        ActiveExperiment snapshot = snapshot();
+        if (Objects.equals(snapshot.id, experimentId)) {
+            return Optional.ofNullable(snapshot.experiment);
+        }
+        return experimentId != null ? experimentRepository.findById(experimentId) : Optional.empty();
+    }
+
+    /**
+     * Re-reads the active experiment from the database. Called periodically to
+     * pick up changes made outside this instance, and after an experiment has
+     * been updated or deleted.
+     */
+    @Scheduled(fixedDelayString = "${experiment.active.reconcile-interval-ms:30000}")
+    public synchronized void reload() {
+        ActiveExperiment previous = active;
+        ActiveExperiment current = load();
+        active = current;
+
+        if (previous != null && (!Objects.equals(previous.id, current.id)
+                || (previous.experiment == null) != (current.experiment == null))) {
+            logger.info("Active experiment changed in database from ID {} to ID {}", previous.id, current.id);
+        }
+    }
+
+    private ActiveExperiment snapshot() {
+        ActiveExperiment snapshot = active;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (active == null) {
+                    active = load();
+                }
+                snapshot = active;
+            }
+        }
+        return snapshot;
+    }
+
+    private ActiveExperiment load() {
+        Long currentId = configRepository.findById(CURRENT_EXPERIMENT_KEY)
+                .map(config -> {
+                    try {
+                        return Long.parseLong(config.getConfigValue());
+                    } catch (NumberFormatException e) {
+                        logger.error("Invalid experiment ID in configuration: {}", config.getConfigValue());
+                        return DEFAULT_EXPERIMENT_ID;
+                    }
+                })
+                .orElse(DEFAULT_EXPERIMENT_ID);
+
+        return new ActiveExperiment(currentId, experimentRepository.findById(currentId).orElse(null));
     }
 }
@@ -0,0 +1,285 @@
+package via.sep4.service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Rendered exports kept on disk, so downloading the same export again is a
+ * file copy rather than a database scan. Meant for finished experiments,
+ * whose data no longer changes.
+ * <p>
+ * Entries are kept per experiment and named after the experiment's version,
+ * which grows with every transaction that stores measurements, followed by a
+ * hash of what else tells exports apart (range, format and compression).
+ * Storing an entry removes the experiment's entries of older versions. When
+ * the cache outgrows its size limit, the least recently used entries are
+ * removed.
+ */
+@Service
+public class ExportCache {
+    private static final Logger logger = LoggerFactory.getLogger(ExportCache.class);
+
+    private static final String ENTRY_SUFFIX = ".export";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long ABANDONED_TEMP_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    @Autowired
+    public ExportCache(@Value("${measurements.export.cache.directory:./export-cache}") String directory,
+            @Value("${measurements.export.cache.max-size-bytes:1073741824}") long maxSizeBytes) {
+        this.directory = Paths.get(directory);
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxSizeBytes > 0;
+    }
+
+    /**
+     * @return a body that sends the stored export, or null if there is none
+     */
+    public StreamingResponseBody find(Long experimentId, long version, String variant) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        Path entry = entry(experimentId, version, variant);
+        InputStream in;
+        try {
+            // opened now, so the file can still be read if it is evicted before the body is written
+            in = Files.newInputStream(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Could not read cached export {}: {}", entry, e.getMessage());
+            return null;
+        }
+        return out -> {
+            try (in) {
+                in.transferTo(out);
+            }
+        };
+    }
+
+    /**
+     * Wraps a body so that what it writes is also stored. The entry is only
+     * kept if the body completes; failing to store it does not affect the
+     * response.
+     */
+    public StreamingResponseBody store(Long experimentId, long version, String variant, StreamingResponseBody body) {
+        if (!isEnabled()) {
+            return body;
+        }
+
+        return out -> {
+            try (CopyingOutputStream copying = new CopyingOutputStream(out, experimentId)) {
+                body.writeTo(copying);
+                copying.commit(version, variant);
+            }
+        };
+    }
+
+    /**
+     * Removes all entries of an experiment.
+     */
+    public synchronized void evict(Long experimentId) {
+        removeEntries(directory.resolve(experimentId.toString()), Long.MAX_VALUE);
+    }
+
+    private synchronized void add(Path temp, Long experimentId, long version, String variant) throws IOException {
+        Path entry = entry(experimentId, version, variant);
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        removeEntries(entry.getParent(), version);
+        trim();
+    }
+
+    /**
+     * Removes the entries in an experiment's directory older than the given
+     * version.
+     */
+    private void removeEntries(Path experimentDirectory, long version) {
+        if (!Files.isDirectory(experimentDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(experimentDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(ENTRY_SUFFIX) && Long.parseLong(name.substring(0, name.indexOf('-'))) < version) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not remove cached exports in {}: {}", experimentDirectory, e.getMessage());
+        }
+    }
+
+    private void trim() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        FileTime abandonedBefore = FileTime.fromMillis(System.currentTimeMillis() - ABANDONED_TEMP_AGE_MS);
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(ENTRY_SUFFIX)) {
+                    entries.add(file);
+                } else if (name.endsWith(TEMP_SUFFIX) && lastModified(file).compareTo(abandonedBefore) < 0) {
+                    // left behind by a restart in the middle of an export
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        long size = 0;
+        for (Path entry : entries) {
+            size += Files.size(entry);
+        }
+        if (size <= maxSizeBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(ExportCache::lastModified));
+        for (Path entry : entries) {
+            if (size <= maxSizeBytes) {
+                break;
+            }
+            size -= Files.size(entry);
+            Files.deleteIfExists(entry);
+            logger.debug("Evicted cached export {}", entry);
+        }
+    }
+
+    private Path entry(Long experimentId, long version, String variant) {
+        return directory.resolve(experimentId.toString()).resolve(version + "-" + hash(variant) + ENTRY_SUFFIX);
+    }
+
+    /**
+     * @return the first 128 bits of the SHA-256 of the variant, in hex
+     */
+    public static String hash(String variant) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(variant.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes to the response and to a temporary file. If the file cannot be
+     * written, the response continues without it.
+     */
+    private final class CopyingOutputStream extends FilterOutputStream {
+        private final Long experimentId;
+        private Path temp;
+        private OutputStream copy;
+
+        CopyingOutputStream(OutputStream out, Long experimentId) {
+            super(out);
+            this.experimentId = experimentId;
+            try {
+                Path experimentDirectory = Files.createDirectories(directory.resolve(experimentId.toString()));
+                temp = Files.createTempFile(experimentDirectory, "export", TEMP_SUFFIX);
+                copy = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE);
+            } catch (IOException e) {
+                abandon(e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                try {
+                    copy.write(b, off, len);
+                } catch (IOException e) {
+                    abandon(e);
+                }
+            }
+        }
+
+        void commit(long version, String variant) {
+            if (copy == null) {
+                return;
+            }
+            try {
+                copy.close();
+                copy = null;
+                add(temp, experimentId, version, variant);
+                temp = null;
+            } catch (IOException e) {
+                abandon(e);
+            }
+        }
+
+        /**
+         * Flushes the response but leaves closing it to the caller. Removes
+         * the temporary file unless the export was committed.
+         */
+        @Override
+        public void close() throws IOException {
+            out.flush();
+            if (temp != null) {
+                abandon(null);
+            }
+        }
+
+        private void abandon(IOException cause) {
+            if (cause != null) {
+                logger.warn("Not caching export of experiment {}: {}", experimentId, cause.getMessage());
+            }
+            try {
+                if (copy != null) {
+                    copy.close();
+                }
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not remove temporary export {}: {}", temp, e.getMessage());
+            }
+            copy = null;
+            temp = null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package via.sep4.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Compressions available for exports, either as a Content-Encoding the client
+ * decodes transparently or as a compressed file download.
+ */
+public enum ExportCompression {
+    NONE("identity", null, null),
+    GZIP("gzip", "gz", MediaType.parseMediaType("application/gzip")),
+    ZSTD("zstd", "zst", MediaType.parseMediaType("application/zstd"));
+
+    private final String contentCoding;
+    private final String extension;
+    private final MediaType fileType;
+
+    ExportCompression(String contentCoding, String extension, MediaType fileType) {
+        this.contentCoding = contentCoding;
+        this.extension = extension;
+        this.fileType = fileType;
+    }
+
+    /**
+     * @return the coding as named in Accept-Encoding and Content-Encoding
+     */
+    public String getContentCoding() {
+        return contentCoding;
+    }
+
+    /**
+     * @return the file name suffix of a compressed download, without the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return the content type of a compressed download
+     */
+    public MediaType getFileType() {
+        return fileType;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no compression has that extension
+     */
+    public static ExportCompression fromExtension(String extension) {
+        for (ExportCompression compression : values()) {
+            if (compression.extension != null && compression.extension.equalsIgnoreCase(extension)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression: " + extension);
+    }
+}
@@ -0,0 +1,119 @@
+package via.sep4.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Chooses the compression of an export from the client's Accept-Encoding and
+ * compresses the export stream on the fly. Levels are configurable; the
+ * defaults favour speed, since the exported numeric text compresses well even
+ * at low levels.
+ */
+@Service
+public class ExportCompressor {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int gzipLevel;
+    private final int zstdLevel;
+
+    @Autowired
+    public ExportCompressor(@Value("${measurements.export.gzip-level:6}") int gzipLevel,
+            @Value("${measurements.export.zstd-level:3}") int zstdLevel) {
+        this.gzipLevel = Math.min(Math.max(gzipLevel, 1), 9);
+        this.zstdLevel = Math.min(Math.max(zstdLevel, 1), 19);
+    }
+
+    /**
+     * Picks the coding with the highest q-value in an Accept-Encoding header,
+     * preferring zstd over gzip when both are equally acceptable. A wildcard
+     * stands for gzip, which every client that sends one can decode.
+     *
+     * @return {@link ExportCompression#NONE} if the header is absent or
+     *         accepts neither
+     */
+    public ExportCompression negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return ExportCompression.NONE;
+        }
+
+        double gzip = -1;
+        double zstd = -1;
+        double wildcard = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(params);
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "zstd" -> zstd = Math.max(zstd, quality);
+                case "*" -> wildcard = quality;
+                default -> {
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+
+        if (zstd > 0 && zstd >= gzip) {
+            return ExportCompression.ZSTD;
+        }
+        return gzip > 0 ? ExportCompression.GZIP : ExportCompression.NONE;
+    }
+
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Wraps the stream in a compressor. Closing the returned stream ends the
+     * compressed data but leaves the given stream open.
+     */
+    public OutputStream compress(ExportCompression compression, OutputStream out) throws IOException {
+        OutputStream target = new KeepOpenOutputStream(out);
+        return switch (compression) {
+            case NONE -> target;
+            case GZIP -> new GZIPOutputStream(target, BUFFER_SIZE) {
+                {
+                    def.setLevel(gzipLevel);
+                }
+            };
+            case ZSTD -> new ZstdOutputStream(target, zstdLevel);
+        };
+    }
+
+    private static final class KeepOpenOutputStream extends FilterOutputStream {
+        KeepOpenOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
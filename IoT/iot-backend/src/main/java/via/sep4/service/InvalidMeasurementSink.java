@@ -0,0 +1,233 @@
+package via.sep4.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import via.sep4.datalistener.IngestMetrics;
+import via.sep4.model.InvalidMeasurement;
+import via.sep4.repository.InvalidMeasurementRepository;
+
+/**
+ * Stores invalid ESP measurements off the ingest path. Rows are written in one
+ * transaction per flush interval. With a collapse window, errors with the same
+ * experiment and validation error are merged into a single row carrying an
+ * occurrence count, so a misbehaving sensor costs at most one row per distinct
+ * error per window. When the queue is full, new rows are dropped and counted
+ * instead of blocking ingest.
+ */
+@Service
+public class InvalidMeasurementSink {
+    private static final Logger logger = LoggerFactory.getLogger(InvalidMeasurementSink.class);
+
+    private final InvalidMeasurementRepository invalidMeasurementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestMetrics metrics;
+    private final BlockingQueue<InvalidMeasurement> queue;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final long collapseWindowMs;
+
+    // only touched by the flusher thread
+    private final Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+
+    private final AtomicLong recordedErrors = new AtomicLong();
+    private final AtomicLong droppedErrors = new AtomicLong();
+    private final AtomicLong collapsedErrors = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    private static class Aggregate {
+        final InvalidMeasurement row;
+        final long windowEndsAt;
+
+        Aggregate(InvalidMeasurement row, long windowEndsAt) {
+            this.row = row;
+            this.windowEndsAt = windowEndsAt;
+        }
+    }
+
+    @Autowired
+    public InvalidMeasurementSink(InvalidMeasurementRepository invalidMeasurementRepository,
+            TransactionTemplate transactionTemplate, IngestMetrics metrics,
+            @Value("${esp.invalid-sink.queue-capacity:10000}") int queueCapacity,
+            @Value("${esp.invalid-sink.flush-size:500}") int flushSize,
+            @Value("${esp.invalid-sink.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${esp.invalid-sink.collapse-window-ms:10000}") long collapseWindowMs) {
+        this.invalidMeasurementRepository = invalidMeasurementRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.collapseWindowMs = collapseWindowMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "invalid-measurement-sink");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Invalid measurement sink started (capacity {}, flush interval {} ms, collapse window {} ms)",
+                queue.remainingCapacity(), flushIntervalMs, collapseWindowMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues an invalid measurement for storage. Never blocks.
+     *
+     * @return false if the queue was full and the row was dropped
+     */
+    public boolean record(InvalidMeasurement invalidMeasurement) {
+        if (invalidMeasurement.getReceivedAt() == null) {
+            invalidMeasurement.setReceivedAt(LocalDateTime.now());
+        }
+        invalidMeasurement.setOccurrenceCount(1);
+        invalidMeasurement.setFirstSeenAt(invalidMeasurement.getReceivedAt());
+        invalidMeasurement.setLastSeenAt(invalidMeasurement.getReceivedAt());
+
+        if (!queue.offer(invalidMeasurement)) {
+            droppedErrors.incrementAndGet();
+            return false;
+        }
+        recordedErrors.incrementAndGet();
+        return true;
+    }
+
+    private void runFlusher() {
+        while (running || !queue.isEmpty()) {
+            List<InvalidMeasurement> received = new ArrayList<>();
+
+            try {
+                InvalidMeasurement first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    received.add(first);
+                    queue.drainTo(received);
+                }
+            } catch (InterruptedException e) {
+                // woken up for shutdown, drain and write out everything we hold
+                queue.drainTo(received);
+            }
+
+            List<InvalidMeasurement> batch = new ArrayList<>();
+            for (InvalidMeasurement invalidMeasurement : received) {
+                if (collapseWindowMs > 0) {
+                    collapse(invalidMeasurement);
+                } else {
+                    batch.add(invalidMeasurement);
+                }
+            }
+            closeWindows(batch, false);
+
+            for (int from = 0; from < batch.size(); from += flushSize) {
+                flush(batch.subList(from, Math.min(from + flushSize, batch.size())));
+            }
+        }
+
+        List<InvalidMeasurement> remaining = new ArrayList<>();
+        closeWindows(remaining, true);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    private void collapse(InvalidMeasurement invalidMeasurement) {
+        String key = invalidMeasurement.getExperimentId() + "\u0000" + invalidMeasurement.getValidationError();
+        Aggregate aggregate = aggregates.get(key);
+
+        if (aggregate == null) {
+            long windowEndsAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(collapseWindowMs);
+            aggregates.put(key, new Aggregate(invalidMeasurement, windowEndsAt));
+            return;
+        }
+
+        InvalidMeasurement row = aggregate.row;
+        row.setOccurrenceCount(row.getOccurrenceCount() + 1);
+        row.setLastSeenAt(invalidMeasurement.getReceivedAt());
+        collapsedErrors.incrementAndGet();
+    }
+
+    private void closeWindows(List<InvalidMeasurement> batch, boolean all) {
+        long now = System.nanoTime();
+        Iterator<Aggregate> it = aggregates.values().iterator();
+        while (it.hasNext()) {
+            Aggregate aggregate = it.next();
+            if (all || aggregate.windowEndsAt - now <= 0) {
+                batch.add(aggregate.row);
+                it.remove();
+            }
+        }
+    }
+
+    private void flush(List<InvalidMeasurement> batch) {
+        long start = System.nanoTime();
+        boolean committed;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> invalidMeasurementRepository.saveAll(batch));
+            flushedRows.addAndGet(batch.size());
+            committed = true;
+            logger.info("Stored {} invalid measurement row(s)", batch.size());
+        } catch (RuntimeException e) {
+            failedRows.addAndGet(batch.size());
+            committed = false;
+            logger.error("Failed to store {} invalid measurement row(s)", batch.size(), e);
+        }
+
+        metrics.recordSave(IngestMetrics.TABLE_INVALID_MEASUREMENTS, committed, System.nanoTime() - start);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCollapseWindowMs() {
+        return collapseWindowMs;
+    }
+
+    public long getRecordedErrors() {
+        return recordedErrors.get();
+    }
+
+    public long getDroppedErrors() {
+        return droppedErrors.get();
+    }
+
+    public long getCollapsedErrors() {
+        return collapsedErrors.get();
+    }
+
+    public long getFlushedRows() {
+        return flushedRows.get();
+    }
+
+    public long getFailedRows() {
+        return failedRows.get();
+    }
+}
@@ -0,0 +1,71 @@
+package via.sep4.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import via.sep4.dto.MeasurementView;
+
+/**
+ * Export rows held column by column, the unit of a Parquet row group or an
+ * Arrow record batch. Columns are those of the CSV export, in the same order:
+ * the timestamp, {@code lysIndstilling} and ten doubles.
+ */
+final class MeasurementBatch {
+    static final String[] COLUMNS = MeasurementExporter.CSV_HEADERS;
+    static final int TIMESTAMP = 0;
+    static final int LYS_INDSTILLING = 4;
+
+    /** Microseconds since the epoch of the local timestamp, read as if it were UTC. */
+    final long[] timestamps;
+    /** Indexed by column; null for the timestamp and lysIndstilling columns. */
+    final double[][] values;
+    final String[] lysIndstilling;
+    private int size;
+
+    MeasurementBatch(int capacity) {
+        timestamps = new long[capacity];
+        values = new double[COLUMNS.length][];
+        for (int column = 0; column < COLUMNS.length; column++) {
+            if (isDouble(column)) {
+                values[column] = new double[capacity];
+            }
+        }
+        lysIndstilling = new String[capacity];
+    }
+
+    static boolean isDouble(int column) {
+        return column != TIMESTAMP && column != LYS_INDSTILLING;
+    }
+
+    /**
+     * @return true if the batch is now full
+     */
+    boolean add(MeasurementView m) {
+        timestamps[size] = toMicros(m.timestamp());
+        values[1][size] = m.luftTemperatur();
+        values[2][size] = m.luftfugtighed();
+        values[3][size] = m.jordFugtighed();
+        lysIndstilling[size] = m.lysIndstilling();
+        values[5][size] = m.lysHøjesteIntensitet();
+        values[6][size] = m.lysLavesteIntensitet();
+        values[7][size] = m.lysGennemsnit();
+        values[8][size] = m.afstandTilHøjde();
+        values[9][size] = m.vandTidFraSidste();
+        values[10][size] = m.vandMængde();
+        values[11][size] = m.vandFrekvens();
+        size++;
+        return size == timestamps.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    private static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+}
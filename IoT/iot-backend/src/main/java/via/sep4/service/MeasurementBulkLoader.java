@@ -0,0 +1,338 @@
+package via.sep4.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.repository.PlantMeasurementsRepository;
+
+/**
+ * Loads large numbers of measurements, and their rollups, in one transaction.
+ * On PostgreSQL rows are streamed with {@code COPY ... FROM STDIN}, using ids
+ * reserved from {@code plant_measurements_seq} so they never collide with ids
+ * handed out by Hibernate. On other databases (H2 in tests) rows go through
+ * JPA in JDBC batches, clearing the persistence context after every chunk.
+ *
+ * <p>
+ * Rows are pulled from the iterator one chunk at a time, so the source can be
+ * a file that never fits in memory. An exception thrown by the iterator rolls
+ * back everything loaded so far.
+ * <p>
+ * Measurements replayed from the ingest journal go through
+ * {@link #storeReplayed}, which skips entries that are already stored.
+ */
+@Service
+public class MeasurementBulkLoader {
+    private static final Logger logger = LoggerFactory.getLogger(MeasurementBulkLoader.class);
+
+    // must match allocationSize on PlantMeasurements and INCREMENT BY of the sequence
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String RESERVE_IDS_SQL = "SELECT nextval('plant_measurements_seq') FROM generate_series(1, ?)";
+
+    private static final String COPY_SQL = "COPY plant_measurements (id, experiment_id, luft_temperatur, "
+            + "luftfugtighed, jord_fugtighed, lys_indstilling, lys_højeste_intensitet, lys_laveste_intensitet, "
+            + "lys_gennemsnit, afstand_til_højde, vand_tid_fra_sidste, vand_mængde, vand_frekvens, timestamp) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String INSERT_REPLAYED_SQL = "INSERT INTO plant_measurements (id, experiment_id, "
+            + "luft_temperatur, luftfugtighed, jord_fugtighed, lys_indstilling, lys_højeste_intensitet, "
+            + "lys_laveste_intensitet, lys_gennemsnit, afstand_til_højde, vand_tid_fra_sidste, vand_mængde, "
+            + "vand_frekvens, timestamp, journal_sequence) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (journal_sequence, timestamp) DO NOTHING";
+
+    // the timestamp range prunes partitions the batch cannot be in
+    private static final String FIND_INSERTED_SQL = "SELECT id FROM plant_measurements "
+            + "WHERE id = ANY (?) AND timestamp BETWEEN ? AND ?";
+
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final PlantMeasurementsRepository measurementsRepository;
+    private final MeasurementPartitionMaintainer partitionMaintainer;
+    private final MeasurementRollupService rollupService;
+    private final int chunkSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public MeasurementBulkLoader(DataSource dataSource, TransactionTemplate transactionTemplate,
+            PlantMeasurementsRepository measurementsRepository, MeasurementPartitionMaintainer partitionMaintainer,
+            MeasurementRollupService rollupService,
+            @Value("${measurements.bulk-load.chunk-size:10000}") int chunkSize) {
+        this.dataSource = dataSource;
+        this.transactionTemplate = transactionTemplate;
+        this.measurementsRepository = measurementsRepository;
+        this.partitionMaintainer = partitionMaintainer;
+        this.rollupService = rollupService;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @return the number of rows stored
+     */
+    public long load(Iterator<PlantMeasurements> rows) {
+        Long loaded = transactionTemplate.execute(status -> {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                if (connection.isWrapperFor(PGConnection.class)) {
+                    return copy(connection, connection.unwrap(PGConnection.class).getCopyAPI(), rows);
+                }
+            } catch (SQLException e) {
+                throw new DataAccessResourceFailureException("COPY of measurements failed", e);
+            }
+            return saveInBatches(rows);
+        });
+        return loaded != null ? loaded : 0;
+    }
+
+    /**
+     * Stores measurements read back from the ingest journal, and their rollups,
+     * leaving out those whose journal entry is already stored, so a range of
+     * the journal can be replayed any number of times. Must run in a
+     * transaction.
+     *
+     * @return the measurements that were stored
+     */
+    public List<PlantMeasurements> storeReplayed(List<PlantMeasurements> measurements) {
+        if (measurements.isEmpty()) {
+            return measurements;
+        }
+
+        List<PlantMeasurements> stored;
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            stored = connection.isWrapperFor(PGConnection.class)
+                    ? insertReplayed(connection, measurements)
+                    : saveUnreplayed(measurements);
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Insert of replayed measurements failed", e);
+        }
+
+        rollupService.record(stored);
+        if (stored.size() < measurements.size()) {
+            logger.debug("Skipped {} replayed measurement(s) that were already stored",
+                    measurements.size() - stored.size());
+        }
+        return stored;
+    }
+
+    private List<PlantMeasurements> insertReplayed(Connection connection, List<PlantMeasurements> measurements)
+            throws SQLException {
+        long[] ids = reserveIds(connection, measurements.size());
+        LocalDateTime first = measurements.get(0).getTimestamp();
+        LocalDateTime last = first;
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_REPLAYED_SQL)) {
+            for (int i = 0; i < measurements.size(); i++) {
+                PlantMeasurements m = measurements.get(i);
+                statement.setLong(1, ids[i]);
+                statement.setLong(2, m.getExperiment().getId());
+                statement.setDouble(3, m.getLuftTemperatur());
+                statement.setDouble(4, m.getLuftfugtighed());
+                statement.setDouble(5, m.getJordFugtighed());
+                statement.setString(6, m.getLysIndstilling());
+                statement.setDouble(7, m.getLysHøjesteIntensitet());
+                statement.setDouble(8, m.getLysLavesteIntensitet());
+                statement.setDouble(9, m.getLysGennemsnit());
+                statement.setDouble(10, m.getAfstandTilHøjde());
+                statement.setDouble(11, m.getVandTidFraSidste());
+                statement.setDouble(12, m.getVandMængde());
+                statement.setDouble(13, m.getVandFrekvens());
+                statement.setTimestamp(14, Timestamp.valueOf(m.getTimestamp()));
+                statement.setLong(15, m.getJournalSequence());
+                statement.addBatch();
+
+                first = m.getTimestamp().isBefore(first) ? m.getTimestamp() : first;
+                last = m.getTimestamp().isAfter(last) ? m.getTimestamp() : last;
+            }
+            statement.executeBatch();
+        }
+
+        // rewritten batches report no per-row counts, but only inserted rows carry the new ids
+        Set<Long> inserted = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(FIND_INSERTED_SQL)) {
+            Long[] boxedIds = new Long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                boxedIds[i] = ids[i];
+            }
+            statement.setArray(1, connection.createArrayOf("bigint", boxedIds));
+            statement.setTimestamp(2, Timestamp.valueOf(first));
+            statement.setTimestamp(3, Timestamp.valueOf(last));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    inserted.add(resultSet.getLong(1));
+                }
+            }
+        }
+
+        List<PlantMeasurements> stored = new ArrayList<>(inserted.size());
+        for (int i = 0; i < measurements.size(); i++) {
+            if (inserted.contains(ids[i])) {
+                measurements.get(i).setId(ids[i]);
+                stored.add(measurements.get(i));
+            }
+        }
+        return stored;
+    }
+
+    // databases without ON CONFLICT (H2 in tests) look up the stored sequences first
+    private List<PlantMeasurements> saveUnreplayed(List<PlantMeasurements> measurements) {
+        LongSummaryStatistics sequences = measurements.stream()
+                .mapToLong(PlantMeasurements::getJournalSequence)
+                .summaryStatistics();
+        Set<Long> replayed = new HashSet<>(
+                measurementsRepository.findJournalSequencesBetween(sequences.getMin(), sequences.getMax()));
+
+        List<PlantMeasurements> unreplayed = measurements.stream()
+                .filter(measurement -> !replayed.contains(measurement.getJournalSequence()))
+                .toList();
+        measurementsRepository.saveAll(unreplayed);
+        return unreplayed;
+    }
+
+    private long copy(Connection connection, CopyManager copyManager, Iterator<PlantMeasurements> rows)
+            throws SQLException {
+        long start = System.nanoTime();
+        long loaded = 0;
+        List<PlantMeasurements> chunk = new ArrayList<>(chunkSize);
+        StringBuilder csv = new StringBuilder();
+        Set<LocalDate> months = new HashSet<>();
+
+        while (nextChunk(rows, chunk)) {
+            ensurePartitions(chunk, months);
+            long[] ids = reserveIds(connection, chunk.size());
+
+            csv.setLength(0);
+            for (int i = 0; i < chunk.size(); i++) {
+                appendCsv(csv, ids[i], chunk.get(i));
+            }
+            byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+            CopyIn copyIn = copyManager.copyIn(COPY_SQL);
+            try {
+                copyIn.writeToCopy(data, 0, data.length);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            rollupService.record(chunk);
+            loaded += chunk.size();
+        }
+
+        logger.info("Copied {} measurement(s) in {} ms", loaded, (System.nanoTime() - start) / 1_000_000);
+        return loaded;
+    }
+
+    // uploads are often old data, which would otherwise go to the default partition
+    private void ensurePartitions(List<PlantMeasurements> chunk, Set<LocalDate> months) {
+        List<LocalDate> newMonths = new ArrayList<>();
+        for (PlantMeasurements measurement : chunk) {
+            LocalDate month = measurement.getTimestamp().toLocalDate().withDayOfMonth(1);
+            if (months.add(month)) {
+                newMonths.add(month);
+            }
+        }
+        partitionMaintainer.ensurePartitionsFor(newMonths);
+    }
+
+    /**
+     * Reserves ids in blocks from the sequence, the same way Hibernate's
+     * pooled optimizer does: a sequence value v stands for the ids v - 49 to v.
+     */
+    private long[] reserveIds(Connection connection, int count) throws SQLException {
+        long[] ids = new long[count];
+        int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+
+        try (PreparedStatement statement = connection.prepareStatement(RESERVE_IDS_SQL)) {
+            statement.setInt(1, blocks);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int i = 0;
+                while (resultSet.next() && i < count) {
+                    long first = resultSet.getLong(1) - ID_BLOCK_SIZE + 1;
+                    for (int j = 0; j < ID_BLOCK_SIZE && i < count; j++) {
+                        ids[i++] = first + j;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void appendCsv(StringBuilder csv, long id, PlantMeasurements m) {
+        csv.append(id).append(',')
+                .append(m.getExperiment().getId()).append(',')
+                .append(m.getLuftTemperatur()).append(',')
+                .append(m.getLuftfugtighed()).append(',')
+                .append(m.getJordFugtighed()).append(',');
+        appendText(csv, m.getLysIndstilling());
+        csv.append(',')
+                .append(m.getLysHøjesteIntensitet()).append(',')
+                .append(m.getLysLavesteIntensitet()).append(',')
+                .append(m.getLysGennemsnit()).append(',')
+                .append(m.getAfstandTilHøjde()).append(',')
+                .append(m.getVandTidFraSidste()).append(',')
+                .append(m.getVandMængde()).append(',')
+                .append(m.getVandFrekvens()).append(',');
+        csv.append(m.getTimestamp()).append('\n');
+    }
+
+    // an unquoted empty field is NULL in COPY csv, so empty strings are quoted
+    private static void appendText(StringBuilder csv, String value) {
+        if (value != null) {
+            csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private long saveInBatches(Iterator<PlantMeasurements> rows) {
+        long loaded = 0;
+        List<PlantMeasurements> chunk = new ArrayList<>(chunkSize);
+
+        while (nextChunk(rows, chunk)) {
+            measurementsRepository.saveAll(chunk);
+            rollupService.record(chunk);
+            entityManager.flush();
+            entityManager.clear();
+            loaded += chunk.size();
+        }
+        return loaded;
+    }
+
+    private boolean nextChunk(Iterator<PlantMeasurements> rows, List<PlantMeasurements> chunk) {
+        chunk.clear();
+        while (chunk.size() < chunkSize && rows.hasNext()) {
+            chunk.add(rows.next());
+        }
+        return !chunk.isEmpty();
+    }
+}
@@ -0,0 +1,240 @@
+package via.sep4.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import via.sep4.dto.MeasurementView;
+import via.sep4.repository.PlantMeasurementsRepository;
+
+/**
+ * Writes an experiment's measurements straight from a forward-only database
+ * cursor to an output stream. Rows are read in batches of the repository's
+ * fetch size and written as they arrive, so memory use does not depend on the
+ * size of the export. CSV is written by hand; JSON and NDJSON go through a
+ * Jackson {@link JsonGenerator} with numbers written as numbers. Parquet and
+ * Arrow hold one batch of rows at a time in typed columns.
+ */
+@Service
+public class MeasurementExporter {
+    static final String[] CSV_HEADERS = {
+            "timestamp", "luftTemperatur", "luftfugtighed", "jordFugtighed",
+            "lysIndstilling", "lysHøjesteIntensitet", "lysLavesteIntensitet", "lysGennemsnit",
+            "afstandTilHøjde", "vandTidFraSidste", "vandMængde", "vandFrekvens" };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PlantMeasurementsRepository measurementsRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int batchRows;
+
+    @Autowired
+    public MeasurementExporter(PlantMeasurementsRepository measurementsRepository,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            @Value("${measurements.export.batch-rows:65536}") int batchRows) {
+        this.measurementsRepository = measurementsRepository;
+        this.objectMapper = objectMapper;
+        this.batchRows = Math.max(batchRows, 1);
+        // PostgreSQL only uses a cursor for the fetch size inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean hasMeasurements(Long experimentId, LocalDateTime startTime, LocalDateTime endTime) {
+        return measurementsRepository.existsByExperimentIdAndTimestampBetween(experimentId, startTime, endTime);
+    }
+
+    /**
+     * Writes the measurements between startTime and endTime as CSV with a
+     * header row, in timestamp order. Does not close the stream.
+     */
+    public void writeCsv(Long experimentId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out)
+            throws IOException {
+        export(experimentId, startTime, endTime, out, this::writeCsv);
+    }
+
+    /**
+     * Writes the measurements between startTime and endTime as one JSON array
+     * of objects, in timestamp order. Does not close the stream.
+     */
+    public void writeJson(Long experimentId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out)
+            throws IOException {
+        export(experimentId, startTime, endTime, out, this::writeJson);
+    }
+
+    /**
+     * Writes the measurements between startTime and endTime as newline
+     * delimited JSON, one object per line, in timestamp order. Does not close
+     * the stream.
+     */
+    public void writeNdjson(Long experimentId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out)
+            throws IOException {
+        export(experimentId, startTime, endTime, out, this::writeNdjson);
+    }
+
+    /**
+     * Writes the measurements between startTime and endTime as a Parquet file,
+     * one zstd compressed row group per batch of rows, in timestamp order.
+     * Does not close the stream.
+     */
+    public void writeParquet(Long experimentId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out)
+            throws IOException {
+        export(experimentId, startTime, endTime, out, this::writeParquet);
+    }
+
+    /**
+     * Writes the measurements between startTime and endTime as an Arrow IPC
+     * stream, one record batch per batch of rows, in timestamp order. Does not
+     * close the stream.
+     */
+    public void writeArrow(Long experimentId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out)
+            throws IOException {
+        export(experimentId, startTime, endTime, out, this::writeArrow);
+    }
+
+    private void export(Long experimentId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out,
+            RowsWriter writer) throws IOException {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<MeasurementView> rows = measurementsRepository.streamViews(experimentId, startTime,
+                        endTime)) {
+                    writer.write(rows.iterator(), out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void writeCsv(Iterator<MeasurementView> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(String.join(",", CSV_HEADERS));
+        writer.write('\n');
+        // the client gets the response headers and first line before the first batch is read
+        writer.flush();
+
+        while (rows.hasNext()) {
+            MeasurementView m = rows.next();
+            writer.write(String.valueOf(m.timestamp()));
+            writeCsvValue(writer, m.luftTemperatur());
+            writeCsvValue(writer, m.luftfugtighed());
+            writeCsvValue(writer, m.jordFugtighed());
+            writer.write(',');
+            writeCsvText(writer, m.lysIndstilling());
+            writeCsvValue(writer, m.lysHøjesteIntensitet());
+            writeCsvValue(writer, m.lysLavesteIntensitet());
+            writeCsvValue(writer, m.lysGennemsnit());
+            writeCsvValue(writer, m.afstandTilHøjde());
+            writeCsvValue(writer, m.vandTidFraSidste());
+            writeCsvValue(writer, m.vandMængde());
+            writeCsvValue(writer, m.vandFrekvens());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    public void writeJson(Iterator<MeasurementView> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            generator.flush();
+            while (rows.hasNext()) {
+                writeJsonObject(generator, rows.next());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    public void writeNdjson(Iterator<MeasurementView> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            // objects are separated by the newline written after each one, not by the default space
+            generator.setRootValueSeparator(null);
+            while (rows.hasNext()) {
+                writeJsonObject(generator, rows.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    public void writeParquet(Iterator<MeasurementView> rows, OutputStream out) throws IOException {
+        ParquetMeasurementWriter writer = new ParquetMeasurementWriter(out, batchRows);
+        while (rows.hasNext()) {
+            writer.write(rows.next());
+        }
+        writer.finish();
+    }
+
+    public void writeArrow(Iterator<MeasurementView> rows, OutputStream out) throws IOException {
+        ArrowMeasurementWriter writer = new ArrowMeasurementWriter(out, batchRows);
+        while (rows.hasNext()) {
+            writer.write(rows.next());
+        }
+        writer.finish();
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // closing the generator flushes it but leaves the response stream to the caller
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private static void writeJsonObject(JsonGenerator generator, MeasurementView m) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("timestamp", String.valueOf(m.timestamp()));
+        generator.writeNumberField("luftTemperatur", m.luftTemperatur());
+        generator.writeNumberField("luftfugtighed", m.luftfugtighed());
+        generator.writeNumberField("jordFugtighed", m.jordFugtighed());
+        generator.writeStringField("lysIndstilling", m.lysIndstilling());
+        generator.writeNumberField("lysHøjesteIntensitet", m.lysHøjesteIntensitet());
+        generator.writeNumberField("lysLavesteIntensitet", m.lysLavesteIntensitet());
+        generator.writeNumberField("lysGennemsnit", m.lysGennemsnit());
+        generator.writeNumberField("afstandTilHøjde", m.afstandTilHøjde());
+        generator.writeNumberField("vandTidFraSidste", m.vandTidFraSidste());
+        generator.writeNumberField("vandMængde", m.vandMængde());
+        generator.writeNumberField("vandFrekvens", m.vandFrekvens());
+        generator.writeEndObject();
+    }
+
+    private static void writeCsvValue(Writer writer, double value) throws IOException {
+        writer.write(',');
+        writer.write(Double.toString(value));
+    }
+
+    private static void writeCsvText(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowsWriter {
+        void write(Iterator<MeasurementView> rows, OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,98 @@
+package via.sep4.service;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Collection;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps monthly partitions of {@code plant_measurements} ahead of the clock on
+ * PostgreSQL, so rows are never routed to the default partition in normal
+ * operation. Also moves rows that did land in the default partition (old
+ * uploads, clock skew) into partitions of their own. Does nothing on other
+ * databases, where the table is not partitioned.
+ */
+@Service
+public class MeasurementPartitionMaintainer {
+    private static final Logger logger = LoggerFactory.getLogger(MeasurementPartitionMaintainer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final int monthsAhead;
+    private volatile Boolean partitioned;
+
+    @Autowired
+    public MeasurementPartitionMaintainer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${measurements.partitions.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        // attaching a partition locks the default partition until commit
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.monthsAhead = Math.max(1, monthsAhead);
+    }
+
+    @Scheduled(fixedDelayString = "${measurements.partitions.check-interval-ms:3600000}")
+    public void ensurePartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+
+        try {
+            Integer created = jdbcTemplate.queryForObject("SELECT ensure_plant_measurements_partitions(?)",
+                    Integer.class, monthsAhead);
+            if (created != null && created > 0) {
+                logger.info("Created {} measurement partition(s)", created);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Could not create measurement partitions", e);
+        }
+    }
+
+    /**
+     * Creates the partitions for the months of the given days, each in a short
+     * transaction of its own, so the locks taken to attach it are not held
+     * for the rest of the caller's transaction. Used before bulk loads of old
+     * data, so the rows go straight to their partition instead of through the
+     * default partition. Partitions stay in place if the caller rolls back.
+     */
+    public void ensurePartitionsFor(Collection<LocalDate> days) {
+        if (days.isEmpty() || !isPartitioned()) {
+            return;
+        }
+
+        for (LocalDate day : days) {
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.queryForObject(
+                    "SELECT create_plant_measurements_partition(?)", Boolean.class, day));
+        }
+    }
+
+    private boolean isPartitioned() {
+        if (partitioned == null) {
+            partitioned = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    return false;
+                }
+                try (Statement statement = connection.createStatement();
+                        ResultSet resultSet = statement.executeQuery(
+                                "SELECT to_regproc('ensure_plant_measurements_partitions') IS NOT NULL")) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            }));
+        }
+        return partitioned;
+    }
+}
@@ -0,0 +1,228 @@
+package via.sep4.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import via.sep4.dto.RollupBucket;
+import via.sep4.model.MeasurementRollup;
+import via.sep4.model.MeasurementVersion;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.model.RollupGranularity;
+import via.sep4.repository.MeasurementRollupRepository;
+
+/**
+ * Maintains per-experiment minute, hour and day aggregates of every sensor
+ * column. Every path that stores measurements calls {@link #record} in the
+ * same transaction, so the rollups always match the stored rows. A batch is
+ * first aggregated in memory and each touched bucket is then upserted once;
+ * buckets are written in key order so concurrent writers cannot deadlock.
+ * <p>
+ * The same call bumps each touched experiment's {@link MeasurementVersion},
+ * which validators of the experiment's data are built on.
+ */
+@Service
+public class MeasurementRollupService {
+    private static final Map<String, ToDoubleFunction<PlantMeasurements>> SENSORS = new LinkedHashMap<>();
+
+    static {
+        SENSORS.put("luftTemperatur", PlantMeasurements::getLuftTemperatur);
+        SENSORS.put("luftfugtighed", PlantMeasurements::getLuftfugtighed);
+        SENSORS.put("jordFugtighed", PlantMeasurements::getJordFugtighed);
+        SENSORS.put("lysHøjesteIntensitet", PlantMeasurements::getLysHøjesteIntensitet);
+        SENSORS.put("lysLavesteIntensitet", PlantMeasurements::getLysLavesteIntensitet);
+        SENSORS.put("lysGennemsnit", PlantMeasurements::getLysGennemsnit);
+        SENSORS.put("afstandTilHøjde", PlantMeasurements::getAfstandTilHøjde);
+        SENSORS.put("vandTidFraSidste", PlantMeasurements::getVandTidFraSidste);
+        SENSORS.put("vandMængde", PlantMeasurements::getVandMængde);
+        SENSORS.put("vandFrekvens", PlantMeasurements::getVandFrekvens);
+    }
+
+    private static final String COLUMNS = "experiment_id, granularity, bucket_start, sensor, sample_count, "
+            + "min_value, max_value, sum_value, last_value, last_timestamp";
+
+    private static final String UPSERT_SQL = "INSERT INTO measurement_rollup (" + COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (experiment_id, granularity, bucket_start, sensor) DO UPDATE SET "
+            + "sample_count = measurement_rollup.sample_count + EXCLUDED.sample_count, "
+            + "min_value = LEAST(measurement_rollup.min_value, EXCLUDED.min_value), "
+            + "max_value = GREATEST(measurement_rollup.max_value, EXCLUDED.max_value), "
+            + "sum_value = measurement_rollup.sum_value + EXCLUDED.sum_value, "
+            + "last_value = CASE WHEN EXCLUDED.last_timestamp >= measurement_rollup.last_timestamp "
+            + "THEN EXCLUDED.last_value ELSE measurement_rollup.last_value END, "
+            + "last_timestamp = GREATEST(measurement_rollup.last_timestamp, EXCLUDED.last_timestamp)";
+
+    // standard SQL for databases without ON CONFLICT (H2 in tests)
+    private static final String MERGE_SQL = "MERGE INTO measurement_rollup r USING (VALUES (CAST(? AS BIGINT), "
+            + "CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), "
+            + "CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION), CAST(? AS DOUBLE PRECISION), "
+            + "CAST(? AS DOUBLE PRECISION), CAST(? AS TIMESTAMP))) AS s (" + COLUMNS + ") "
+            + "ON r.experiment_id = s.experiment_id AND r.granularity = s.granularity "
+            + "AND r.bucket_start = s.bucket_start AND r.sensor = s.sensor "
+            + "WHEN MATCHED THEN UPDATE SET sample_count = r.sample_count + s.sample_count, "
+            + "min_value = LEAST(r.min_value, s.min_value), max_value = GREATEST(r.max_value, s.max_value), "
+            + "sum_value = r.sum_value + s.sum_value, "
+            + "last_value = CASE WHEN s.last_timestamp >= r.last_timestamp THEN s.last_value ELSE r.last_value END, "
+            + "last_timestamp = GREATEST(r.last_timestamp, s.last_timestamp) "
+            + "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (s.experiment_id, s.granularity, "
+            + "s.bucket_start, s.sensor, s.sample_count, s.min_value, s.max_value, s.sum_value, s.last_value, "
+            + "s.last_timestamp)";
+
+    private static final String VERSION_UPSERT_SQL = "INSERT INTO measurement_version (experiment_id, version) "
+            + "VALUES (?, 1) ON CONFLICT (experiment_id) DO UPDATE SET version = measurement_version.version + 1";
+
+    private static final String VERSION_MERGE_SQL = "MERGE INTO measurement_version v "
+            + "USING (VALUES (CAST(? AS BIGINT))) AS s (experiment_id) ON v.experiment_id = s.experiment_id "
+            + "WHEN MATCHED THEN UPDATE SET version = v.version + 1 "
+            + "WHEN NOT MATCHED THEN INSERT (experiment_id, version) VALUES (s.experiment_id, 1)";
+
+    private static final Comparator<BucketKey> KEY_ORDER = Comparator.comparing(BucketKey::experimentId)
+            .thenComparing(BucketKey::granularity)
+            .thenComparing(BucketKey::bucketStart)
+            .thenComparing(BucketKey::sensor);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeasurementRollupRepository rollupRepository;
+    private volatile Boolean postgres;
+
+    @Autowired
+    public MeasurementRollupService(JdbcTemplate jdbcTemplate, MeasurementRollupRepository rollupRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * Adds stored measurements to the rollups. Must run in the transaction that
+     * stored them. Measurements without an experiment or timestamp are skipped.
+     */
+    public void record(Collection<PlantMeasurements> measurements) {
+        Map<BucketKey, Aggregate> aggregates = aggregate(measurements);
+        if (aggregates.isEmpty()) {
+            return;
+        }
+
+        // experiments in id order, locked before any bucket, like the buckets themselves
+        List<Object[]> experiments = aggregates.keySet().stream()
+                .map(BucketKey::experimentId)
+                .distinct()
+                .map(experimentId -> new Object[] { experimentId })
+                .toList();
+        jdbcTemplate.batchUpdate(isPostgres() ? VERSION_UPSERT_SQL : VERSION_MERGE_SQL, experiments);
+
+        List<Object[]> rows = new ArrayList<>(aggregates.size());
+        aggregates.forEach((key, aggregate) -> rows.add(new Object[] {
+                key.experimentId(), key.granularity().name(), Timestamp.valueOf(key.bucketStart()), key.sensor(),
+                aggregate.count, aggregate.min, aggregate.max, aggregate.sum, aggregate.last,
+                Timestamp.valueOf(aggregate.lastTimestamp) }));
+        jdbcTemplate.batchUpdate(isPostgres() ? UPSERT_SQL : MERGE_SQL, rows);
+    }
+
+    private static Map<BucketKey, Aggregate> aggregate(Collection<PlantMeasurements> measurements) {
+        Map<BucketKey, Aggregate> aggregates = new TreeMap<>(KEY_ORDER);
+
+        for (PlantMeasurements measurement : measurements) {
+            LocalDateTime timestamp = measurement.getTimestamp();
+            if (measurement.getExperiment() == null || timestamp == null) {
+                continue;
+            }
+            Long experimentId = measurement.getExperiment().getId();
+
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                LocalDateTime bucketStart = granularity.bucketStart(timestamp);
+                SENSORS.forEach((sensor, column) -> aggregates
+                        .computeIfAbsent(new BucketKey(experimentId, granularity, bucketStart, sensor),
+                                key -> new Aggregate())
+                        .add(column.applyAsDouble(measurement), timestamp));
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * @return the finest granularity that covers the range in at most
+     *         maxPoints buckets, or {@link RollupGranularity#DAY} if none does
+     */
+    public RollupGranularity chooseGranularity(LocalDateTime start, LocalDateTime end, int maxPoints) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            if (granularity.bucketCount(start, end) <= maxPoints) {
+                return granularity;
+            }
+        }
+        return RollupGranularity.DAY;
+    }
+
+    public List<RollupBucket> findBuckets(Long experimentId, RollupGranularity granularity, LocalDateTime start,
+            LocalDateTime end) {
+        List<MeasurementRollup> rollups = rollupRepository
+                .findByExperimentIdAndGranularityAndBucketStartBetweenOrderByBucketStart(experimentId, granularity,
+                        granularity.bucketStart(start), end);
+
+        Map<LocalDateTime, RollupBucket> buckets = new LinkedHashMap<>();
+        for (MeasurementRollup rollup : rollups) {
+            RollupBucket.SensorStats stats = new RollupBucket.SensorStats(rollup.getMinValue(), rollup.getMaxValue(),
+                    rollup.getSumValue() / rollup.getSampleCount(), rollup.getLastValue());
+            buckets.computeIfAbsent(rollup.getBucketStart(), RollupBucket::new)
+                    .addSensor(rollup.getSensor(), stats, rollup.getSampleCount());
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * @return the experiment's {@link MeasurementVersion}, 0 if no
+     *         measurements were ever stored for it
+     */
+    public long getVersion(Long experimentId) {
+        Long version = jdbcTemplate.query("SELECT version FROM measurement_version WHERE experiment_id = ?",
+                resultSet -> resultSet.next() ? resultSet.getLong(1) : null, experimentId);
+        return version != null ? version : 0;
+    }
+
+    public void deleteForExperiment(Long experimentId) {
+        rollupRepository.deleteByExperimentId(experimentId);
+        jdbcTemplate.update("DELETE FROM measurement_version WHERE experiment_id = ?", experimentId);
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = Boolean.TRUE.equals(jdbcTemplate.execute(
+                    (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+        }
+        return postgres;
+    }
+
+    private record BucketKey(Long experimentId, RollupGranularity granularity, LocalDateTime bucketStart, String sensor) {
+    }
+
+    private static final class Aggregate {
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+        double last;
+        LocalDateTime lastTimestamp;
+
+        void add(double value, LocalDateTime timestamp) {
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            if (lastTimestamp == null || !timestamp.isBefore(lastTimestamp)) {
+                last = value;
+                lastTimestamp = timestamp;
+            }
+        }
+    }
+}
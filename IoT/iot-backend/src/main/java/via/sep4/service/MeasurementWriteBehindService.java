@@ -0,0 +1,223 @@
+package via.sep4.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import via.sep4.datalistener.IngestMetrics;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.repository.PlantMeasurementsRepository;
+
+/**
+ * Collects measurements from all ESP connections and writes them, together
+ * with their rollups, in one transaction per batch. A batch is flushed when it
+ * reaches the flush size or when its oldest row has waited for the flush
+ * interval, whichever comes first. When the queue is full, {@link #enqueue}
+ * blocks the caller.
+ */
+@Service
+public class MeasurementWriteBehindService {
+    private static final Logger logger = LoggerFactory.getLogger(MeasurementWriteBehindService.class);
+
+    private final PlantMeasurementsRepository measurementsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeasurementRollupService rollupService;
+    private final MeasurementBulkLoader bulkLoader;
+    private final IngestMetrics metrics;
+    private final BlockingQueue<PlantMeasurements> queue;
+    private final int flushSize;
+    private final long flushIntervalMs;
+
+    private final AtomicLong enqueuedRows = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private volatile int lastFlushSize;
+    private volatile long lastFlushDurationMs;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    @Autowired
+    public MeasurementWriteBehindService(PlantMeasurementsRepository measurementsRepository,
+            TransactionTemplate transactionTemplate, MeasurementRollupService rollupService,
+            MeasurementBulkLoader bulkLoader, IngestMetrics metrics,
+            @Value("${esp.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${esp.write-behind.flush-size:500}") int flushSize,
+            @Value("${esp.write-behind.flush-interval-ms:200}") long flushIntervalMs) {
+        this.measurementsRepository = measurementsRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.rollupService = rollupService;
+        this.bulkLoader = bulkLoader;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "measurement-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Measurement write-behind started (capacity {}, flush size {}, flush interval {} ms)",
+                queue.remainingCapacity(), flushSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public void enqueue(PlantMeasurements measurement) {
+        try {
+            queue.put(measurement);
+            enqueuedRows.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedRows.incrementAndGet();
+            logger.warn("Interrupted while queueing measurement, measurement dropped");
+        }
+    }
+
+    private void runFlusher() {
+        while (running || !queue.isEmpty()) {
+            List<PlantMeasurements> batch = new ArrayList<>(flushSize);
+
+            try {
+                PlantMeasurements first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+                while (batch.size() < flushSize) {
+                    queue.drainTo(batch, flushSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= flushSize || remaining <= 0) {
+                        break;
+                    }
+
+                    PlantMeasurements next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // woken up for shutdown, flush what we have and drain the rest
+                queue.drainTo(batch);
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    /**
+     * Writes a batch replayed from the ingest journal on the calling thread,
+     * bypassing the queue, for callers that need to know whether the rows
+     * reached the database. Rows whose journal entry is already stored are
+     * left out, see {@link MeasurementBulkLoader#storeReplayed}.
+     *
+     * @return true if the batch was committed
+     */
+    public boolean writeBatch(List<PlantMeasurements> batch) {
+        return flush(batch, bulkLoader::storeReplayed);
+    }
+
+    private boolean flush(List<PlantMeasurements> batch) {
+        return flush(batch, rows -> {
+            measurementsRepository.saveAll(rows);
+            rollupService.record(rows);
+            return rows;
+        });
+    }
+
+    private boolean flush(List<PlantMeasurements> batch, UnaryOperator<List<PlantMeasurements>> store) {
+        long start = System.nanoTime();
+        List<PlantMeasurements> stored = batch;
+        boolean committed;
+
+        try {
+            stored = transactionTemplate.execute(status -> store.apply(batch));
+            flushedRows.addAndGet(stored.size());
+            committed = true;
+            logger.debug("Flushed {} measurement(s)", stored.size());
+        } catch (RuntimeException e) {
+            failedRows.addAndGet(batch.size());
+            committed = false;
+            logger.error("Failed to flush {} measurement(s)", batch.size(), e);
+        }
+
+        long duration = System.nanoTime() - start;
+        metrics.recordSave(IngestMetrics.TABLE_MEASUREMENTS, committed, duration);
+        if (committed) {
+            metrics.recordCommitted(stored);
+        }
+
+        flushCount.incrementAndGet();
+        lastFlushSize = batch.size();
+        lastFlushDurationMs = TimeUnit.NANOSECONDS.toMillis(duration);
+        return committed;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public long getEnqueuedRows() {
+        return enqueuedRows.get();
+    }
+
+    public long getFlushedRows() {
+        return flushedRows.get();
+    }
+
+    public long getFailedRows() {
+        return failedRows.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public int getLastFlushSize() {
+        return lastFlushSize;
+    }
+
+    public long getLastFlushDurationMs() {
+        return lastFlushDurationMs;
+    }
+}
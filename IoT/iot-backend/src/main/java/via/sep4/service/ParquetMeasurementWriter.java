@@ -0,0 +1,474 @@
+package via.sep4.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.parquet.format.ColumnChunk;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.ColumnOrder;
+import org.apache.parquet.format.CompressionCodec;
+import org.apache.parquet.format.ConvertedType;
+import org.apache.parquet.format.DataPageHeader;
+import org.apache.parquet.format.DictionaryPageHeader;
+import org.apache.parquet.format.Encoding;
+import org.apache.parquet.format.FieldRepetitionType;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.LogicalType;
+import org.apache.parquet.format.MicroSeconds;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.format.RowGroup;
+import org.apache.parquet.format.SchemaElement;
+import org.apache.parquet.format.Statistics;
+import org.apache.parquet.format.StringType;
+import org.apache.parquet.format.TimeUnit;
+import org.apache.parquet.format.TimestampType;
+import org.apache.parquet.format.Type;
+import org.apache.parquet.format.TypeDefinedOrder;
+import org.apache.parquet.format.Util;
+
+import com.github.luben.zstd.Zstd;
+
+import via.sep4.dto.MeasurementView;
+
+/**
+ * Writes export rows as a Parquet file. Rows are buffered one row group at a
+ * time and each full row group is written out before the next is read, so
+ * memory use depends on the row group size rather than the export.
+ * <p>
+ * Every column chunk is one zstd compressed page. Timestamps are delta
+ * encoded and lysIndstilling is always dictionary encoded; a double column is
+ * dictionary encoded when that is smaller than plain, which it is for the few
+ * distinct readings a sensor reports in a row group. Only the file structures
+ * come from parquet-format; the pages are encoded here.
+ */
+final class ParquetMeasurementWriter {
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final String CREATED_BY = "sep4 iot-backend";
+    private static final int ZSTD_LEVEL = 3;
+    private static final int MIN_REPEATED_RUN = 8;
+    private static final int DELTA_BLOCK_SIZE = 128;
+    private static final int DELTA_MINIBLOCKS = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CountingOutputStream out;
+    private final MeasurementBatch batch;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private long rowCount;
+
+    ParquetMeasurementWriter(OutputStream out, int rowGroupRows) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        this.batch = new MeasurementBatch(rowGroupRows);
+        this.out.write(MAGIC);
+    }
+
+    void write(MeasurementView m) throws IOException {
+        if (batch.add(m)) {
+            writeRowGroup();
+        }
+    }
+
+    /**
+     * Writes the last row group and the footer. Does not close the stream.
+     */
+    void finish() throws IOException {
+        if (batch.size() > 0) {
+            writeRowGroup();
+        }
+
+        FileMetaData metaData = new FileMetaData(1, schema(), rowCount, rowGroups);
+        metaData.setCreated_by(CREATED_BY);
+        List<ColumnOrder> columnOrders = new ArrayList<>();
+        for (int column = 0; column < MeasurementBatch.COLUMNS.length; column++) {
+            columnOrders.add(ColumnOrder.TYPE_ORDER(new TypeDefinedOrder()));
+        }
+        metaData.setColumn_orders(columnOrders);
+
+        long footerStart = out.count;
+        Util.writeFileMetaData(metaData, out);
+        out.write(littleEndian(4).putInt((int) (out.count - footerStart)).array());
+        out.write(MAGIC);
+        out.flush();
+    }
+
+    private void writeRowGroup() throws IOException {
+        int rows = batch.size();
+        long start = out.count;
+        long uncompressedSize = 0;
+        List<ColumnChunk> columns = new ArrayList<>();
+        for (int column = 0; column < MeasurementBatch.COLUMNS.length; column++) {
+            ColumnMetaData metaData;
+            if (column == MeasurementBatch.TIMESTAMP) {
+                metaData = writeTimestamps(rows);
+            } else if (column == MeasurementBatch.LYS_INDSTILLING) {
+                metaData = writeLysIndstilling(rows);
+            } else {
+                metaData = writeDoubles(column, rows);
+            }
+            ColumnChunk chunk = new ColumnChunk(metaData.isSetDictionary_page_offset()
+                    ? metaData.getDictionary_page_offset()
+                    : metaData.getData_page_offset());
+            chunk.setMeta_data(metaData);
+            columns.add(chunk);
+            uncompressedSize += metaData.getTotal_uncompressed_size();
+        }
+
+        RowGroup rowGroup = new RowGroup(columns, uncompressedSize, rows);
+        rowGroup.setFile_offset(start);
+        rowGroup.setTotal_compressed_size(out.count - start);
+        rowGroups.add(rowGroup);
+        rowCount += rows;
+        batch.clear();
+        // the client receives each row group as soon as it is complete
+        out.flush();
+    }
+
+    private ColumnMetaData writeTimestamps(int rows) throws IOException {
+        long[] timestamps = batch.timestamps;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            min = Math.min(min, timestamps[i]);
+            max = Math.max(max, timestamps[i]);
+        }
+
+        Statistics statistics = new Statistics();
+        statistics.setNull_count(0);
+        statistics.setMin_value(littleEndian(Long.BYTES).putLong(min).array());
+        statistics.setMax_value(littleEndian(Long.BYTES).putLong(max).array());
+        // readings arrive at a steady interval, so the deltas pack into a few bits each
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        writeDeltaBinaryPacked(page, timestamps, rows);
+        return writeColumnChunk(MeasurementBatch.TIMESTAMP, Type.INT64, null, 0, page.toByteArray(),
+                Encoding.DELTA_BINARY_PACKED, rows, statistics);
+    }
+
+    private ColumnMetaData writeDoubles(int column, int rows) throws IOException {
+        double[] values = batch.values[column];
+        Map<Long, Integer> ids = new HashMap<>();
+        int[] indices = new int[rows];
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < rows; i++) {
+            indices[i] = ids.computeIfAbsent(Double.doubleToLongBits(values[i]), bits -> ids.size());
+            // NaN is left out of the statistics, as the format requires
+            min = values[i] < min ? values[i] : min;
+            max = values[i] > max ? values[i] : max;
+        }
+
+        Statistics statistics = new Statistics();
+        statistics.setNull_count(0);
+        if (min <= max) {
+            // zero bounds are written signed so that readers need not care which zero was seen
+            statistics.setMin_value(littleEndian(Double.BYTES).putDouble(min == 0 ? -0.0 : min).array());
+            statistics.setMax_value(littleEndian(Double.BYTES).putDouble(max == 0 ? 0.0 : max).array());
+        }
+
+        int bitWidth = bitWidth(ids.size());
+        long dictionarySize = (long) ids.size() * Double.BYTES + (long) rows * bitWidth / 8;
+        if (dictionarySize >= (long) rows * Double.BYTES) {
+            ByteBuffer page = littleEndian(rows * Double.BYTES);
+            page.asDoubleBuffer().put(values, 0, rows);
+            return writeColumnChunk(column, Type.DOUBLE, null, 0, page.array(), Encoding.PLAIN, rows, statistics);
+        }
+
+        ByteBuffer dictionary = littleEndian(ids.size() * Double.BYTES);
+        for (Map.Entry<Long, Integer> entry : ids.entrySet()) {
+            dictionary.putLong(entry.getValue() * Double.BYTES, entry.getKey());
+        }
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        page.write(bitWidth);
+        writeHybrid(page, indices, rows, bitWidth);
+        return writeColumnChunk(column, Type.DOUBLE, dictionary.array(), ids.size(), page.toByteArray(),
+                Encoding.RLE_DICTIONARY, rows, statistics);
+    }
+
+    private ColumnMetaData writeLysIndstilling(int rows) throws IOException {
+        String[] values = batch.lysIndstilling;
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        int[] definitionLevels = new int[rows];
+        int[] indices = new int[rows];
+        int valueCount = 0;
+        for (int i = 0; i < rows; i++) {
+            if (values[i] != null) {
+                definitionLevels[i] = 1;
+                indices[valueCount++] = ids.computeIfAbsent(values[i], value -> ids.size());
+            }
+        }
+
+        Statistics statistics = new Statistics();
+        statistics.setNull_count(rows - valueCount);
+
+        // a v1 data page starts with the definition levels, prefixed by their length
+        ByteArrayOutputStream levels = new ByteArrayOutputStream();
+        writeHybrid(levels, definitionLevels, rows, 1);
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        page.write(littleEndian(4).putInt(levels.size()).array());
+        levels.writeTo(page);
+        if (ids.isEmpty()) {
+            return writeColumnChunk(MeasurementBatch.LYS_INDSTILLING, Type.BYTE_ARRAY, null, 0, page.toByteArray(),
+                    Encoding.PLAIN, rows, statistics);
+        }
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        for (String value : ids.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            dictionary.write(littleEndian(4).putInt(bytes.length).array());
+            dictionary.write(bytes);
+        }
+        int bitWidth = bitWidth(ids.size());
+        page.write(bitWidth);
+        writeHybrid(page, indices, valueCount, bitWidth);
+        return writeColumnChunk(MeasurementBatch.LYS_INDSTILLING, Type.BYTE_ARRAY, dictionary.toByteArray(),
+                ids.size(), page.toByteArray(), Encoding.RLE_DICTIONARY, rows, statistics);
+    }
+
+    /**
+     * Writes a column chunk of an optional dictionary page followed by a single
+     * data page, and returns its metadata for the footer.
+     */
+    private ColumnMetaData writeColumnChunk(int column, Type type, byte[] dictionary, int dictionarySize,
+            byte[] data, Encoding encoding, int rows, Statistics statistics) throws IOException {
+        long start = out.count;
+        long uncompressedSize = 0;
+        List<Encoding> encodings = new ArrayList<>(List.of(Encoding.RLE, encoding));
+        if (dictionary != null) {
+            PageHeader header = new PageHeader();
+            header.setType(PageType.DICTIONARY_PAGE);
+            header.setDictionary_page_header(new DictionaryPageHeader(dictionarySize, Encoding.PLAIN));
+            uncompressedSize += writePage(header, dictionary);
+            encodings.add(Encoding.PLAIN);
+        }
+
+        long dataPageOffset = out.count;
+        PageHeader header = new PageHeader();
+        header.setType(PageType.DATA_PAGE);
+        header.setData_page_header(new DataPageHeader(rows, encoding, Encoding.RLE, Encoding.RLE));
+        uncompressedSize += writePage(header, data);
+
+        ColumnMetaData metaData = new ColumnMetaData(type, encodings, List.of(MeasurementBatch.COLUMNS[column]),
+                CompressionCodec.ZSTD, rows, uncompressedSize, out.count - start, dataPageOffset);
+        if (dictionary != null) {
+            metaData.setDictionary_page_offset(start);
+        }
+        metaData.setStatistics(statistics);
+        return metaData;
+    }
+
+    /**
+     * Writes a page compressed with zstd.
+     *
+     * @return the size of the page uncompressed, header included
+     */
+    private long writePage(PageHeader header, byte[] page) throws IOException {
+        byte[] compressed = Zstd.compress(page, ZSTD_LEVEL);
+        header.setUncompressed_page_size(page.length);
+        header.setCompressed_page_size(compressed.length);
+        long start = out.count;
+        Util.writePageHeader(header, out);
+        long headerSize = out.count - start;
+        out.write(compressed);
+        return headerSize + page.length;
+    }
+
+    private static List<SchemaElement> schema() {
+        List<SchemaElement> schema = new ArrayList<>();
+        SchemaElement root = new SchemaElement("schema");
+        root.setNum_children(MeasurementBatch.COLUMNS.length);
+        schema.add(root);
+
+        for (int column = 0; column < MeasurementBatch.COLUMNS.length; column++) {
+            SchemaElement element = new SchemaElement(MeasurementBatch.COLUMNS[column]);
+            if (column == MeasurementBatch.TIMESTAMP) {
+                element.setType(Type.INT64);
+                element.setRepetition_type(FieldRepetitionType.REQUIRED);
+                element.setLogicalType(LogicalType.TIMESTAMP(
+                        new TimestampType(false, TimeUnit.MICROS(new MicroSeconds()))));
+            } else if (column == MeasurementBatch.LYS_INDSTILLING) {
+                element.setType(Type.BYTE_ARRAY);
+                element.setRepetition_type(FieldRepetitionType.OPTIONAL);
+                element.setLogicalType(LogicalType.STRING(new StringType()));
+                element.setConverted_type(ConvertedType.UTF8);
+            } else {
+                element.setType(Type.DOUBLE);
+                element.setRepetition_type(FieldRepetitionType.REQUIRED);
+            }
+            schema.add(element);
+        }
+        return schema;
+    }
+
+    /**
+     * Writes values with the RLE/bit-packing hybrid encoding: runs of at least
+     * eight equal values as one repeated run, everything else bit-packed in
+     * groups of eight.
+     */
+    private static void writeHybrid(ByteArrayOutputStream out, int[] values, int count, int bitWidth) {
+        int i = 0;
+        while (i < count) {
+            int run = 1;
+            while (i + run < count && values[i + run] == values[i]) {
+                run++;
+            }
+
+            if (run >= MIN_REPEATED_RUN) {
+                writeUnsignedVarInt(out, run << 1);
+                for (int shift = 0; shift < bitWidth; shift += 8) {
+                    out.write(values[i] >>> shift);
+                }
+                i += run;
+            } else {
+                int end = i + 8;
+                while (end < count && !isRepeatedRun(values, end, count)) {
+                    end += 8;
+                }
+                writeUnsignedVarInt(out, (end - i) / 8 << 1 | 1);
+                writeBitPacked(out, values, i, end, Math.min(end, count), bitWidth);
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * Writes values with the DELTA_BINARY_PACKED encoding: the first value,
+     * then blocks of 128 deltas, each stored as its distance from the smallest
+     * delta in the block and bit-packed in four miniblocks of 32 at the width
+     * the miniblock needs.
+     */
+    private static void writeDeltaBinaryPacked(ByteArrayOutputStream out, long[] values, int count) {
+        writeUnsignedVarInt(out, DELTA_BLOCK_SIZE);
+        writeUnsignedVarInt(out, DELTA_MINIBLOCKS);
+        writeUnsignedVarInt(out, count);
+        writeUnsignedVarInt(out, zigZag(count > 0 ? values[0] : 0));
+
+        int miniblockSize = DELTA_BLOCK_SIZE / DELTA_MINIBLOCKS;
+        long[] deltas = new long[DELTA_BLOCK_SIZE];
+        for (int start = 1; start < count; start += DELTA_BLOCK_SIZE) {
+            int length = Math.min(DELTA_BLOCK_SIZE, count - start);
+            long minDelta = Long.MAX_VALUE;
+            for (int i = 0; i < length; i++) {
+                deltas[i] = values[start + i] - values[start + i - 1];
+                minDelta = Math.min(minDelta, deltas[i]);
+            }
+
+            // the last miniblock in use is padded with zeros; the widths of unused ones are still written
+            int[] bitWidths = new int[DELTA_MINIBLOCKS];
+            for (int i = 0; i < DELTA_BLOCK_SIZE; i++) {
+                deltas[i] = i < length ? deltas[i] - minDelta : 0;
+                bitWidths[i / miniblockSize] = Math.max(bitWidths[i / miniblockSize],
+                        64 - Long.numberOfLeadingZeros(deltas[i]));
+            }
+            int miniblocks = (length + miniblockSize - 1) / miniblockSize;
+            writeUnsignedVarInt(out, zigZag(minDelta));
+            for (int miniblock = 0; miniblock < DELTA_MINIBLOCKS; miniblock++) {
+                out.write(miniblock < miniblocks ? bitWidths[miniblock] : 0);
+            }
+            for (int miniblock = 0; miniblock < miniblocks; miniblock++) {
+                writeBitPacked(out, deltas, miniblock * miniblockSize, miniblockSize, bitWidths[miniblock]);
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static void writeBitPacked(ByteArrayOutputStream out, long[] values, int start, int count,
+            int bitWidth) {
+        int current = 0;
+        int bits = 0;
+        for (int i = start; i < start + count; i++) {
+            long value = values[i];
+            for (int remaining = bitWidth; remaining > 0;) {
+                int take = Math.min(remaining, 8 - bits);
+                current |= (int) (value & (1L << take) - 1) << bits;
+                value >>>= take;
+                remaining -= take;
+                bits += take;
+                if (bits == 8) {
+                    out.write(current);
+                    current = 0;
+                    bits = 0;
+                }
+            }
+        }
+    }
+
+    private static boolean isRepeatedRun(int[] values, int start, int count) {
+        if (start + MIN_REPEATED_RUN > count) {
+            return false;
+        }
+        for (int i = start + 1; i < start + MIN_REPEATED_RUN; i++) {
+            if (values[i] != values[start]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs values[start, end) least significant bit first, padding with
+     * zeros from count on.
+     */
+    private static void writeBitPacked(ByteArrayOutputStream out, int[] values, int start, int end, int count,
+            int bitWidth) {
+        long buffer = 0;
+        int bits = 0;
+        for (int i = start; i < end; i++) {
+            buffer |= (long) (i < count ? values[i] : 0) << bits;
+            bits += bitWidth;
+            while (bits >= 8) {
+                out.write((int) buffer);
+                buffer >>>= 8;
+                bits -= 8;
+            }
+        }
+    }
+
+    private static void writeUnsignedVarInt(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int bitWidth(int dictionarySize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionarySize - 1));
+    }
+
+    private static ByteBuffer littleEndian(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+-- Move entity ids from IDENTITY columns to sequences read in blocks of 50
+-- (Hibernate's pooled optimizer), so inserts can be sent as JDBC batches.
+--
+-- On a database created before this migration, the identity is dropped and
+-- each sequence is positioned so the first block starts after the current
+-- highest id. On an empty database the tables are created here as Hibernate
+-- would have created them, so the schema never depends on ddl-auto;
+-- plant_measurements is created by V2.
+
+CREATE TABLE IF NOT EXISTS plant_experiment (
+    id bigint NOT NULL,
+    description varchar(255),
+    end_date date,
+    name varchar(255),
+    plant_species varchar(255),
+    start_date date,
+    CONSTRAINT plant_experiment_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS invalid_measurement (
+    id bigint NOT NULL,
+    experiment_id bigint,
+    first_seen_at timestamp(6),
+    last_seen_at timestamp(6),
+    occurrence_count integer,
+    raw_data text,
+    received_at timestamp(6),
+    validation_error text,
+    CONSTRAINT invalid_measurement_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS system_configuration (
+    config_key varchar(255) NOT NULL,
+    config_value varchar(255),
+    CONSTRAINT system_configuration_pkey PRIMARY KEY (config_key)
+);
+
+CREATE SEQUENCE IF NOT EXISTS plant_experiment_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS plant_measurements_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS invalid_measurement_seq START WITH 1 INCREMENT BY 50;
+
+DO $$
+DECLARE
+    t text;
+    max_id bigint;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['plant_experiment', 'plant_measurements', 'invalid_measurement'] LOOP
+        IF to_regclass(t) IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP DEFAULT', t);
+            EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', t) INTO max_id;
+            -- the pooled optimizer hands out (value - 49) .. value for each sequence value
+            PERFORM setval(t || '_seq', max_id + 50, false);
+        END IF;
+    END LOOP;
+END
+$$;
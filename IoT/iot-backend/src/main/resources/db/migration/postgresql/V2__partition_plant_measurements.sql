@@ -0,0 +1,137 @@
+-- Range-partition plant_measurements by month on timestamp.
+--
+-- Every read filters on experiment_id and a timestamp range, so partitions
+-- outside the range are pruned. Inside a partition, a B-tree on
+-- (experiment_id, timestamp) serves the range and top-N queries. A BRIN index
+-- on timestamp keeps scans over whole time ranges cheap at a fraction of the
+-- size of a B-tree. Rows for a month without a partition land in
+-- plant_measurements_default. MeasurementPartitionMaintainer creates
+-- partitions ahead of time and moves such rows out of the default partition
+-- through ensure_plant_measurements_partitions().
+--
+-- A primary key on a partitioned table must contain the partition key, so it
+-- becomes (id, timestamp) and timestamp is NOT NULL. Ids still come from
+-- plant_measurements_seq and stay unique on their own.
+--
+-- An existing table is renamed and copied into the new one. This rewrites
+-- every row once.
+
+DO $$
+BEGIN
+    IF to_regclass('plant_measurements') IS NOT NULL THEN
+        ALTER TABLE plant_measurements RENAME TO plant_measurements_unpartitioned;
+        ALTER TABLE plant_measurements_unpartitioned
+            RENAME CONSTRAINT plant_measurements_pkey TO plant_measurements_unpartitioned_pkey;
+    END IF;
+END
+$$;
+
+CREATE TABLE plant_measurements (
+    id bigint NOT NULL,
+    experiment_id bigint NOT NULL,
+    luft_temperatur float(53) NOT NULL,
+    luftfugtighed float(53) NOT NULL,
+    jord_fugtighed float(53) NOT NULL,
+    lys_indstilling varchar(255),
+    lys_højeste_intensitet float(53) NOT NULL,
+    lys_laveste_intensitet float(53) NOT NULL,
+    lys_gennemsnit float(53) NOT NULL,
+    afstand_til_højde float(53) NOT NULL,
+    vand_tid_fra_sidste float(53) NOT NULL,
+    vand_mængde float(53) NOT NULL,
+    vand_frekvens float(53) NOT NULL,
+    timestamp timestamp(6) NOT NULL,
+    CONSTRAINT plant_measurements_pkey PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE plant_measurements_default PARTITION OF plant_measurements DEFAULT;
+
+CREATE INDEX idx_plant_measurements_experiment_timestamp ON plant_measurements (experiment_id, timestamp);
+CREATE INDEX brin_plant_measurements_timestamp ON plant_measurements USING brin (timestamp);
+
+-- Hibernate cannot see constraints on a partitioned table, so the foreign key
+-- is only created here.
+ALTER TABLE plant_measurements ADD CONSTRAINT fk_plant_measurements_experiment
+    FOREIGN KEY (experiment_id) REFERENCES plant_experiment (id);
+
+-- Creates the partition for the month containing the given day, moving rows
+-- for that month out of the default partition. Returns false if the partition
+-- already exists.
+CREATE FUNCTION create_plant_measurements_partition(day date) RETURNS boolean
+LANGUAGE plpgsql AS $$
+DECLARE
+    month_start timestamp := date_trunc('month', day);
+    month_end timestamp := date_trunc('month', day) + interval '1 month';
+    partition_name text := 'plant_measurements_' || to_char(date_trunc('month', day), 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+
+    -- serialise against other instances creating the same partition
+    PERFORM pg_advisory_xact_lock(hashtext('plant_measurements_partitions'));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+
+    -- the partition is filled before it is attached, because attaching checks
+    -- that the default partition holds no rows for its range
+    EXECUTE format('CREATE TABLE %I (LIKE plant_measurements INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+        partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM plant_measurements_default '
+        || 'WHERE timestamp >= %L AND timestamp < %L RETURNING *) INSERT INTO %I SELECT * FROM moved',
+        month_start, month_end, partition_name);
+    EXECUTE format('ALTER TABLE plant_measurements ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+        partition_name, month_start, month_end);
+    RETURN true;
+END
+$$;
+
+-- Creates partitions from last month up to months_ahead months from now, and
+-- for every month that has rows in the default partition. Returns the number
+-- of partitions created.
+CREATE FUNCTION ensure_plant_measurements_partitions(months_ahead integer) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    day date;
+    created integer := 0;
+BEGIN
+    FOR day IN
+        SELECT generate_series(date_trunc('month', now()) - interval '1 month',
+                               date_trunc('month', now()) + make_interval(months => months_ahead),
+                               interval '1 month')::date
+        UNION
+        SELECT DISTINCT date_trunc('month', timestamp)::date FROM plant_measurements_default
+    LOOP
+        IF create_plant_measurements_partition(day) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END
+$$;
+
+SELECT ensure_plant_measurements_partitions(3);
+
+-- Rows go in through the parent, so each one is routed to its month,
+-- creating partitions for the months the existing data covers first.
+DO $$
+BEGIN
+    IF to_regclass('plant_measurements_unpartitioned') IS NOT NULL THEN
+        PERFORM create_plant_measurements_partition(month::date)
+        FROM (SELECT DISTINCT date_trunc('month', timestamp) AS month
+              FROM plant_measurements_unpartitioned WHERE timestamp IS NOT NULL) months;
+
+        INSERT INTO plant_measurements (id, experiment_id, luft_temperatur, luftfugtighed, jord_fugtighed,
+                lys_indstilling, lys_højeste_intensitet, lys_laveste_intensitet, lys_gennemsnit,
+                afstand_til_højde, vand_tid_fra_sidste, vand_mængde, vand_frekvens, timestamp)
+        SELECT id, experiment_id, luft_temperatur, luftfugtighed, jord_fugtighed,
+               lys_indstilling, lys_højeste_intensitet, lys_laveste_intensitet, lys_gennemsnit,
+               afstand_til_højde, vand_tid_fra_sidste, vand_mængde, vand_frekvens,
+               COALESCE(timestamp, 'epoch'::timestamp)
+        FROM plant_measurements_unpartitioned;
+
+        DROP TABLE plant_measurements_unpartitioned;
+    END IF;
+END
+$$;
@@ -0,0 +1,41 @@
+-- Minute, hour and day rollups of every sensor column, maintained by
+-- MeasurementRollupService as measurements are stored.
+--
+-- The table is created here rather than by Hibernate so the primary key
+-- columns are in the order the rollup query filters on: experiment,
+-- granularity, then a bucket_start range. Measurements stored before this
+-- migration are rolled up once below.
+
+CREATE TABLE measurement_rollup (
+    experiment_id bigint NOT NULL,
+    granularity varchar(16) NOT NULL CHECK (granularity IN ('MINUTE', 'HOUR', 'DAY')),
+    bucket_start timestamp(6) NOT NULL,
+    sensor varchar(255) NOT NULL,
+    sample_count bigint NOT NULL,
+    min_value float(53) NOT NULL,
+    max_value float(53) NOT NULL,
+    sum_value float(53) NOT NULL,
+    last_value float(53) NOT NULL,
+    last_timestamp timestamp(6),
+    CONSTRAINT measurement_rollup_pkey PRIMARY KEY (experiment_id, granularity, bucket_start, sensor)
+);
+
+INSERT INTO measurement_rollup (experiment_id, granularity, bucket_start, sensor, sample_count,
+        min_value, max_value, sum_value, last_value, last_timestamp)
+SELECT m.experiment_id, g.granularity, date_trunc(g.unit, m.timestamp), s.sensor, count(*),
+       min(s.value), max(s.value), sum(s.value), (array_agg(s.value ORDER BY m.timestamp DESC))[1],
+       max(m.timestamp)
+FROM plant_measurements m
+CROSS JOIN LATERAL (VALUES
+        ('luftTemperatur', m.luft_temperatur),
+        ('luftfugtighed', m.luftfugtighed),
+        ('jordFugtighed', m.jord_fugtighed),
+        ('lysHøjesteIntensitet', m.lys_højeste_intensitet),
+        ('lysLavesteIntensitet', m.lys_laveste_intensitet),
+        ('lysGennemsnit', m.lys_gennemsnit),
+        ('afstandTilHøjde', m.afstand_til_højde),
+        ('vandTidFraSidste', m.vand_tid_fra_sidste),
+        ('vandMængde', m.vand_mængde),
+        ('vandFrekvens', m.vand_frekvens)) AS s (sensor, value)
+CROSS JOIN (VALUES ('MINUTE', 'minute'), ('HOUR', 'hour'), ('DAY', 'day')) AS g (granularity, unit)
+GROUP BY m.experiment_id, g.granularity, date_trunc(g.unit, m.timestamp), s.sensor;
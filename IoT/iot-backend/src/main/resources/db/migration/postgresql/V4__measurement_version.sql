@@ -0,0 +1,14 @@
+-- Per-experiment counter of the transactions that stored measurements,
+-- bumped by MeasurementRollupService in the storing transaction. ETags of
+-- measurement listings and exports, and the export cache, are built on it.
+-- The largest measurement id is no substitute: ids come from pooled blocks,
+-- so a lower id can be committed after a higher one.
+--
+-- Created here rather than by Hibernate, like measurement_rollup. Experiments
+-- start without a row, which reads as version 0.
+
+CREATE TABLE measurement_version (
+    experiment_id bigint NOT NULL,
+    version bigint NOT NULL,
+    CONSTRAINT measurement_version_pkey PRIMARY KEY (experiment_id)
+);
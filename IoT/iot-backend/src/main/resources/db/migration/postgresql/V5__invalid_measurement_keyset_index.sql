@@ -0,0 +1,8 @@
+-- Seek index for the keyset-paginated invalid measurement listing, which
+-- filters on experiment_id and pages through (received_at, id).
+--
+-- Databases that ran with ddl-auto=update may already have it from the
+-- former JPA declaration, hence IF NOT EXISTS.
+
+CREATE INDEX IF NOT EXISTS idx_invalid_measurement_experiment_received
+    ON invalid_measurement (experiment_id, received_at, id);
@@ -0,0 +1,12 @@
+-- Journal sequence of the measurements JournalReplayer stores, NULL for rows
+-- from uploads and from ingest without the journal.
+--
+-- The unique index lets a range of the journal be replayed again: the
+-- replayer inserts with ON CONFLICT DO NOTHING, so entries already stored are
+-- skipped instead of stored twice. A unique index on a partitioned table must
+-- contain the partition key; a row replayed from an entry always carries the
+-- entry's receive time, so (journal_sequence, timestamp) identifies the entry.
+
+ALTER TABLE plant_measurements ADD COLUMN journal_sequence bigint;
+
+CREATE UNIQUE INDEX uq_plant_measurements_journal_sequence ON plant_measurements (journal_sequence, timestamp);
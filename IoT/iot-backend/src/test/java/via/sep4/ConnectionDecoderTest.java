@@ -0,0 +1,86 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import via.sep4.datalistener.ConnectionDecoder;
+import via.sep4.datalistener.ESPReading;
+import via.sep4.datalistener.ESPReading.Field;
+import via.sep4.datalistener.IngestRecord;
+
+public class ConnectionDecoderTest {
+    private final List<IngestRecord> records = new ArrayList<>();
+    private final ConnectionDecoder decoder = new ConnectionDecoder(512, records::add);
+
+    @Test
+    void testFeed_TextLines() throws Exception {
+        decoder.feed(ByteBuffer.wrap("Distance: 12 cm, Motion: Yes\nDist".getBytes(StandardCharsets.US_ASCII)));
+        decoder.feed(ByteBuffer.wrap("ance: 13 cm\n".getBytes(StandardCharsets.US_ASCII)));
+
+        assertFalse(decoder.isBinary());
+        assertEquals(2, records.size());
+        assertEquals("Distance: 12 cm, Motion: Yes", records.get(0).getLine());
+        assertEquals("Distance: 13 cm", records.get(1).getLine());
+        assertFalse(records.get(0).isDecoded());
+    }
+
+    @Test
+    void testFeed_BinaryFrameSplitAcrossReads() throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(5 + 2 + 9 + 2 * 10);
+        frame.put(ConnectionDecoder.BINARY_HANDSHAKE);
+        frame.putShort((short) (9 + 2 * 10));
+        frame.putInt(7);
+        frame.putInt(100);
+        frame.put((byte) 2);
+        // reading 1: age 60 s, 12 cm, 21.5 C, 45.0 %, no soil sensor, motion
+        frame.putShort((short) 60).putShort((short) 12).putShort((short) 215).putShort((short) 450)
+                .put((byte) 0xFF).put((byte) 0x01);
+        // reading 2: DHT11 error, soil 30 %
+        frame.putShort((short) 0).putShort((short) 13).putShort((short) 0).putShort((short) 0)
+                .put((byte) 30).put((byte) 0x02);
+        byte[] bytes = frame.array();
+
+        decoder.feed(ByteBuffer.wrap(bytes, 0, 3));
+        decoder.feed(ByteBuffer.wrap(bytes, 3, 15));
+        assertTrue(records.isEmpty());
+        decoder.feed(ByteBuffer.wrap(bytes, 18, bytes.length - 18));
+
+        assertTrue(decoder.isBinary());
+        assertEquals(2, records.size());
+
+        IngestRecord first = records.get(0);
+        ESPReading reading = first.getReading();
+        assertEquals(7, first.getDeviceId());
+        assertEquals(100, first.getSequence());
+        assertEquals(12, reading.getDistance());
+        assertEquals(21.5, reading.getTemperature());
+        assertEquals(45.0, reading.getHumidity());
+        assertFalse(reading.has(Field.SOIL));
+        assertTrue(reading.isMotion());
+        assertTrue(first.getReceivedAt().isBefore(records.get(1).getReceivedAt()));
+
+        ESPReading second = records.get(1).getReading();
+        assertEquals(101, records.get(1).getSequence());
+        assertTrue(second.isSensorError());
+        assertFalse(second.has(Field.TEMPERATURE));
+        assertEquals(30.0, second.getSoilMoisture());
+        assertEquals("Distance: 13 cm, DHT11 sensor error!, Soil: 30.0 %, Motion: No", second.toLine());
+    }
+
+    @Test
+    void testFeed_InvalidFrameLength() throws Exception {
+        decoder.feed(ByteBuffer.wrap(ConnectionDecoder.BINARY_HANDSHAKE));
+
+        assertThrows(ProtocolException.class, () -> decoder.feed(ByteBuffer.wrap(new byte[] { 0, 12 })));
+    }
+}
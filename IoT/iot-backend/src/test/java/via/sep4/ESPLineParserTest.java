@@ -0,0 +1,59 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import via.sep4.datalistener.ESPLineParser;
+import via.sep4.datalistener.ESPReading;
+import via.sep4.datalistener.ESPReading.Field;
+
+public class ESPLineParserTest {
+    private final ESPLineParser parser = new ESPLineParser();
+    private final ESPReading reading = new ESPReading();
+
+    @Test
+    void testParse_FullLine() {
+        assertTrue(parser.parse("Distance: 12 cm, Temp: 21.5 C, Humidity: 45.0 %, Motion: Yes", reading));
+
+        assertEquals(12, reading.getDistance());
+        assertEquals(21.5, reading.getTemperature());
+        assertEquals(45.0, reading.getHumidity());
+        assertTrue(reading.isMotion());
+        assertFalse(reading.has(Field.SOIL));
+        assertFalse(reading.hasUnknownSegment());
+    }
+
+    @Test
+    void testParse_SensorErrorLine() {
+        assertTrue(parser.parse("Distance: 7 cm, DHT11 sensor error!, Motion: No", reading));
+
+        assertTrue(reading.isSensorError());
+        assertTrue(reading.has(Field.DISTANCE));
+        assertFalse(reading.has(Field.TEMPERATURE));
+        assertFalse(reading.isMotion());
+    }
+
+    @Test
+    void testParse_MalformedNumbersAndUnknownLabels() {
+        String line = "Distance: 1.5 cm, Temp: abc C, Humidity: 45.0 %, Pressure: 1013";
+        assertTrue(parser.parse(line, reading));
+
+        assertTrue(reading.isMalformed(Field.DISTANCE));
+        assertTrue(reading.isMalformed(Field.TEMPERATURE));
+        assertEquals("abc C", reading.valueText(line, Field.TEMPERATURE).toString());
+        assertTrue(reading.has(Field.HUMIDITY));
+        assertEquals("Pressure: 1013", reading.unknownSegment(line).toString());
+    }
+
+    @Test
+    void testParse_ReusedReadingIsReset() {
+        parser.parse("Distance: 12 cm, Temp: 21.5 C", reading);
+
+        assertFalse(parser.parse("garbage", reading));
+        assertFalse(reading.has(Field.DISTANCE));
+        assertTrue(reading.hasUnknownSegment());
+    }
+}
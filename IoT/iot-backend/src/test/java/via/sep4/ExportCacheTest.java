@@ -0,0 +1,112 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import via.sep4.service.ExportCache;
+
+public class ExportCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStore_ThenFindReturnsSameBytes() throws IOException {
+        ExportCache cache = new ExportCache(directory.toString(), 1024);
+
+        assertEquals("a,b\n", write(cache.store(1L, 42, "csv", body("a,b\n"))));
+
+        assertEquals("a,b\n", write(cache.find(1L, 42, "csv")));
+        assertNull(cache.find(1L, 42, "json"));
+        assertNull(cache.find(2L, 42, "csv"));
+    }
+
+    @Test
+    void testStore_RemovesOlderVersions() throws IOException {
+        ExportCache cache = new ExportCache(directory.toString(), 1024);
+        write(cache.store(1L, 42, "csv", body("old")));
+
+        write(cache.store(1L, 43, "json", body("new")));
+
+        assertNull(cache.find(1L, 42, "csv"));
+        assertEquals("new", write(cache.find(1L, 43, "json")));
+    }
+
+    @Test
+    void testStore_KeepsNothingIfTheBodyFails() throws IOException {
+        ExportCache cache = new ExportCache(directory.toString(), 1024);
+        StreamingResponseBody failing = out -> {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("connection reset");
+        };
+
+        assertThrows(IOException.class, () -> write(cache.store(1L, 42, "csv", failing)));
+
+        assertNull(cache.find(1L, 42, "csv"));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void testStore_EvictsLeastRecentlyUsed() throws IOException, InterruptedException {
+        ExportCache cache = new ExportCache(directory.toString(), 10);
+        write(cache.store(1L, 42, "csv", body("12345")));
+        Thread.sleep(20);
+        write(cache.store(2L, 7, "csv", body("12345")));
+        Thread.sleep(20);
+        assertNotNull(cache.find(1L, 42, "csv"));
+
+        write(cache.store(3L, 9, "csv", body("12345")));
+
+        assertNotNull(cache.find(1L, 42, "csv"));
+        assertNull(cache.find(2L, 7, "csv"));
+        assertNotNull(cache.find(3L, 9, "csv"));
+    }
+
+    @Test
+    void testEvict_RemovesExperiment() throws IOException {
+        ExportCache cache = new ExportCache(directory.toString(), 1024);
+        write(cache.store(1L, 42, "csv", body("a")));
+
+        cache.evict(1L);
+
+        assertNull(cache.find(1L, 42, "csv"));
+    }
+
+    @Test
+    void testDisabled_PassesBodyThrough() {
+        ExportCache cache = new ExportCache(directory.toString(), 0);
+        StreamingResponseBody body = body("a");
+
+        assertSame(body, cache.store(1L, 42, "csv", body));
+        assertNull(cache.find(1L, 42, "csv"));
+    }
+
+    private static StreamingResponseBody body(String content) {
+        return out -> out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String write(StreamingResponseBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
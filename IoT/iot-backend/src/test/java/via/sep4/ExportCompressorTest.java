@@ -0,0 +1,67 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import via.sep4.service.ExportCompression;
+import via.sep4.service.ExportCompressor;
+
+public class ExportCompressorTest {
+    private final ExportCompressor compressor = new ExportCompressor(6, 3);
+
+    @Test
+    void testNegotiate() {
+        assertEquals(ExportCompression.NONE, compressor.negotiate(null));
+        assertEquals(ExportCompression.NONE, compressor.negotiate("identity"));
+        assertEquals(ExportCompression.GZIP, compressor.negotiate("gzip, deflate, br"));
+        assertEquals(ExportCompression.ZSTD, compressor.negotiate("gzip, deflate, br, zstd"));
+        assertEquals(ExportCompression.GZIP, compressor.negotiate("zstd;q=0.5, gzip"));
+        assertEquals(ExportCompression.NONE, compressor.negotiate("gzip;q=0"));
+        assertEquals(ExportCompression.GZIP, compressor.negotiate("*"));
+        assertEquals(ExportCompression.NONE, compressor.negotiate("*, gzip;q=0"));
+    }
+
+    @Test
+    void testCompress_RoundTrips() throws IOException {
+        byte[] data = "2025-05-01T12:00,22.5,45.0,70.0,2,1000.0\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        byte[] gzip = compress(ExportCompression.GZIP, data);
+        assertArrayEquals(data, new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+
+        byte[] zstd = compress(ExportCompression.ZSTD, data);
+        assertArrayEquals(data, new ZstdInputStream(new ByteArrayInputStream(zstd)).readAllBytes());
+
+        assertArrayEquals(data, compress(ExportCompression.NONE, data));
+    }
+
+    @Test
+    void testCompress_LeavesTargetOpen() throws IOException {
+        OutputStream target = mock(OutputStream.class);
+
+        compressor.compress(ExportCompression.GZIP, target).close();
+
+        verify(target, never()).close();
+    }
+
+    private byte[] compress(ExportCompression compression, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressed = compressor.compress(compression, out)) {
+            compressed.write(data);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import via.sep4.datalistener.IngestJournal;
+import via.sep4.datalistener.JournalEntry;
+
+public class IngestJournalTest {
+    // room for two short entries per segment
+    private static final int SEGMENT_SIZE = 96;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAppend_RotatesSegmentsAndReadsBack() throws IOException {
+        IngestJournal journal = open();
+        LocalDateTime receivedAt = LocalDateTime.of(2025, 5, 1, 12, 0);
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, journal.append("Distance: " + i + " cm", receivedAt, i % 2 == 0 ? 7L : null));
+        }
+        assertEquals(3, journal.getSegmentCount());
+
+        IngestJournal.Reader reader = journal.openReader(2);
+        for (int i = 2; i <= 5; i++) {
+            JournalEntry entry = reader.next();
+            assertEquals(i, entry.getSequence());
+            assertEquals("Distance: " + i + " cm", entry.getLine());
+            assertEquals(receivedAt, entry.getReceivedAt());
+            assertEquals(i % 2 == 0 ? 7L : null, entry.getExperimentId());
+        }
+        assertNull(reader.next());
+        journal.close();
+    }
+
+    @Test
+    void testOpen_RecoversSequenceAndCheckpoint() throws IOException {
+        IngestJournal journal = open();
+        for (int i = 1; i <= 3; i++) {
+            journal.append("Distance: " + i + " cm", LocalDateTime.now(), 1L);
+        }
+        journal.checkpoint(3);
+        journal.close();
+
+        IngestJournal reopened = open();
+        assertEquals(3, reopened.getLastSequence());
+        assertEquals(3, reopened.getCheckpoint());
+        // the first segment was fully replayed and retention is zero
+        assertEquals(3, reopened.getFirstRetainedSequence());
+
+        assertEquals(4, reopened.append("Distance: 4 cm", LocalDateTime.now(), 1L));
+        assertEquals("Distance: 3 cm", reopened.openReader(reopened.getCheckpoint()).next().getLine());
+        reopened.close();
+    }
+
+    private IngestJournal open() throws IOException {
+        IngestJournal journal = new IngestJournal(true, directory.toString(), SEGMENT_SIZE, 0, false);
+        journal.open();
+        return journal;
+    }
+}
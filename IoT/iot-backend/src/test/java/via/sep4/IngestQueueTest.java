@@ -0,0 +1,70 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import via.sep4.datalistener.ESPDataService;
+import via.sep4.datalistener.IngestMetrics;
+import via.sep4.datalistener.IngestQueue;
+import via.sep4.datalistener.IngestQueue.OverloadPolicy;
+import via.sep4.datalistener.IngestQueueWatermarkEvent;
+import via.sep4.datalistener.IngestRecord;
+
+public class IngestQueueTest {
+    private final ESPDataService espDataService = mock(ESPDataService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final IngestMetrics metrics = new IngestMetrics(new SimpleMeterRegistry());
+
+    @Test
+    void testSubmit_DropOldestKeepsNewestLines() {
+        IngestQueue queue = new IngestQueue(espDataService, eventPublisher, null, metrics, 2, OverloadPolicy.DROP_OLDEST, 1,
+                1.0, 0.0);
+
+        assertTrue(queue.submit("a"));
+        assertTrue(queue.submit("b"));
+        assertTrue(queue.submit("c"));
+
+        assertEquals(2, queue.getQueueDepth());
+        assertEquals(1, queue.getDroppedLines());
+        assertTrue(queue.isOverloaded());
+        verify(eventPublisher, times(1)).publishEvent(any(IngestQueueWatermarkEvent.class));
+    }
+
+    @Test
+    void testSubmit_DropNewestRejectsWhenFull() {
+        IngestQueue queue = new IngestQueue(espDataService, eventPublisher, null, metrics, 1, OverloadPolicy.DROP_NEWEST, 1,
+                1.0, 0.0);
+
+        assertTrue(queue.submit("a"));
+        assertFalse(queue.submit("b"));
+
+        assertEquals(1, queue.getAcceptedLines());
+        assertEquals(1, queue.getDroppedLines());
+    }
+
+    @Test
+    void testOffer_BlockLeavesRecordWithCallerWhenFull() {
+        IngestQueue queue = new IngestQueue(espDataService, eventPublisher, null, metrics, 1, OverloadPolicy.BLOCK, 1,
+                1.0, 0.0);
+
+        assertTrue(queue.offer(new IngestRecord("a", LocalDateTime.now())));
+        assertFalse(queue.offer(new IngestRecord("b", LocalDateTime.now())));
+
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(1, queue.getAcceptedLines());
+        assertEquals(0, queue.getDroppedLines());
+        assertTrue(queue.isOverloaded());
+    }
+}
@@ -0,0 +1,77 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import via.sep4.datalistener.IngestMetrics;
+
+import via.sep4.model.InvalidMeasurement;
+import via.sep4.repository.InvalidMeasurementRepository;
+import via.sep4.service.InvalidMeasurementSink;
+
+public class InvalidMeasurementSinkTest {
+    private final InvalidMeasurementRepository invalidMeasurementRepository = mock(InvalidMeasurementRepository.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(
+            mock(PlatformTransactionManager.class));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecord_CollapsesIdenticalErrors() throws InterruptedException {
+        InvalidMeasurementSink sink = new InvalidMeasurementSink(invalidMeasurementRepository, transactionTemplate,
+                new IngestMetrics(new SimpleMeterRegistry()), 100, 500, 60_000, 60_000);
+        sink.start();
+
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            sink.record(invalidMeasurement(1L, "Invalid temperature format", start.plusSeconds(i)));
+        }
+        sink.record(invalidMeasurement(1L, "Invalid humidity format", start));
+        sink.stop();
+
+        ArgumentCaptor<List<InvalidMeasurement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(invalidMeasurementRepository).saveAll(captor.capture());
+        List<InvalidMeasurement> rows = new ArrayList<>(captor.getValue());
+
+        assertEquals(2, rows.size());
+        InvalidMeasurement temperature = rows.get(0);
+        assertEquals(5, temperature.getOccurrenceCount());
+        assertEquals(start, temperature.getFirstSeenAt());
+        assertEquals(start.plusSeconds(4), temperature.getLastSeenAt());
+        assertEquals(4, sink.getCollapsedErrors());
+    }
+
+    @Test
+    void testRecord_DropsWhenQueueIsFull() {
+        InvalidMeasurementSink sink = new InvalidMeasurementSink(invalidMeasurementRepository, transactionTemplate,
+                new IngestMetrics(new SimpleMeterRegistry()), 1, 500, 60_000, 0);
+
+        sink.record(invalidMeasurement(1L, "Invalid distance format", LocalDateTime.now()));
+        assertFalse(sink.record(invalidMeasurement(1L, "Invalid distance format", LocalDateTime.now())));
+
+        assertEquals(1, sink.getDroppedErrors());
+        verify(invalidMeasurementRepository, times(0)).saveAll(anyList());
+    }
+
+    private InvalidMeasurement invalidMeasurement(Long experimentId, String error, LocalDateTime receivedAt) {
+        InvalidMeasurement invalidMeasurement = new InvalidMeasurement();
+        invalidMeasurement.setExperimentId(experimentId);
+        invalidMeasurement.setRawData("Temp: abc C");
+        invalidMeasurement.setValidationError(error);
+        invalidMeasurement.setReceivedAt(receivedAt);
+        return invalidMeasurement;
+    }
+}
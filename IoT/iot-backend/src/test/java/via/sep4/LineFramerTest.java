@@ -0,0 +1,42 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import via.sep4.datalistener.LineFramer;
+
+public class LineFramerTest {
+
+    @Test
+    void testFeed_SplitsLinesAcrossReads() {
+        LineFramer framer = new LineFramer(128);
+        List<String> lines = new ArrayList<>();
+
+        framer.feed(buffer("Distance: 12 cm, Temp: 21"), lines::add);
+        framer.feed(buffer(".5 C\r\nDistance: 13 cm\n"), lines::add);
+
+        assertEquals(List.of("Distance: 12 cm, Temp: 21.5 C", "Distance: 13 cm"), lines);
+        assertEquals(0, framer.pendingBytes());
+    }
+
+    @Test
+    void testFeed_DropsOversizedLines() {
+        LineFramer framer = new LineFramer(8);
+        List<String> lines = new ArrayList<>();
+
+        int dropped = framer.feed(buffer("0123456789abc\nshort\n"), lines::add);
+
+        assertEquals(1, dropped);
+        assertEquals(List.of("short"), lines);
+    }
+
+    private ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,207 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.arrow.flatbuf.DictionaryBatch;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.Encoding;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.Type;
+import org.apache.parquet.format.Util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import via.sep4.dto.MeasurementView;
+import via.sep4.repository.PlantMeasurementsRepository;
+import via.sep4.service.MeasurementExporter;
+
+public class MeasurementExporterTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, 5, 1, 12, 0);
+
+    @Mock
+    private PlantMeasurementsRepository measurementsRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeasurementExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        exporter = new MeasurementExporter(measurementsRepository, transactionManager, new ObjectMapper(), 2);
+    }
+
+    @Test
+    void testWriteCsv_WritesHeaderAndRowsInOrder() throws Exception {
+        List<MeasurementView> rows = List.of(
+                new MeasurementView(1L, 22.5, 45.0, 70.0, "2", 1000.0, 500.0, 750.0, 30.0, 360.0, 250.0, 8.0,
+                        TIMESTAMP),
+                new MeasurementView(2L, 23.0, 46.0, 71.0, null, 0, 0, 0, 0, 0, 0, 0, TIMESTAMP.plusMinutes(1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeCsv(rows.iterator(), out);
+
+        assertEquals("timestamp,luftTemperatur,luftfugtighed,jordFugtighed,lysIndstilling,lysHøjesteIntensitet,"
+                + "lysLavesteIntensitet,lysGennemsnit,afstandTilHøjde,vandTidFraSidste,vandMængde,vandFrekvens\n"
+                + "2025-05-01T12:00,22.5,45.0,70.0,2,1000.0,500.0,750.0,30.0,360.0,250.0,8.0\n"
+                + "2025-05-01T12:01,23.0,46.0,71.0,,0.0,0.0,0.0,0.0,0.0,0.0,0.0\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWriteCsv_QuotesText() throws Exception {
+        MeasurementView row = new MeasurementView(1L, 0, 0, 0, "on, \"dim\"", 0, 0, 0, 0, 0, 0, 0, TIMESTAMP);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeCsv(List.of(row).iterator(), out);
+
+        String line = out.toString(StandardCharsets.UTF_8).split("\n")[1];
+        assertEquals("2025-05-01T12:00,0.0,0.0,0.0,\"on, \"\"dim\"\"\",0.0,0.0,0.0,0.0,0.0,0.0,0.0", line);
+    }
+
+    @Test
+    void testWriteJson_WritesTypedFields() throws Exception {
+        List<MeasurementView> rows = List.of(
+                new MeasurementView(1L, 22.5, 45.0, 70.0, "2", 1000.0, 500.0, 750.0, 30.0, 360.0, 250.0, 8.0,
+                        TIMESTAMP),
+                new MeasurementView(2L, 23.0, 46.0, 71.0, null, 0, 0, 0, 0, 0, 0, 0, TIMESTAMP.plusMinutes(1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeJson(rows.iterator(), out);
+
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(2, json.size());
+        assertEquals("2025-05-01T12:00", json.get(0).get("timestamp").asText());
+        assertTrue(json.get(0).get("luftTemperatur").isDouble());
+        assertEquals(22.5, json.get(0).get("luftTemperatur").asDouble());
+        assertEquals("2", json.get(0).get("lysIndstilling").asText());
+        assertEquals(8.0, json.get(0).get("vandFrekvens").asDouble());
+        assertTrue(json.get(1).get("lysIndstilling").isNull());
+    }
+
+    @Test
+    void testWriteNdjson_WritesOneObjectPerLine() throws Exception {
+        List<MeasurementView> rows = List.of(
+                new MeasurementView(1L, 22.5, 0, 0, "2", 0, 0, 0, 0, 0, 0, 0, TIMESTAMP),
+                new MeasurementView(2L, 23.0, 0, 0, "2", 0, 0, 0, 0, 0, 0, 0, TIMESTAMP.plusMinutes(1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeNdjson(rows.iterator(), out);
+
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        assertTrue(ndjson.endsWith("}\n"));
+        String[] lines = ndjson.split("\n");
+        assertEquals(2, lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(22.5, objectMapper.readTree(lines[0]).get("luftTemperatur").asDouble());
+        assertEquals("2025-05-01T12:01", objectMapper.readTree(lines[1]).get("timestamp").asText());
+    }
+
+    @Test
+    void testWriteParquet_WritesTypedColumnsInRowGroups() throws Exception {
+        List<MeasurementView> rows = List.of(
+                new MeasurementView(1L, 22.5, 45.0, 70.0, "2", 1000.0, 500.0, 750.0, 30.0, 360.0, 250.0, 8.0,
+                        TIMESTAMP),
+                new MeasurementView(2L, 23.0, 46.0, 71.0, null, 0, 0, 0, 0, 0, 0, 0, TIMESTAMP.plusMinutes(1)),
+                new MeasurementView(3L, 21.5, 47.0, 72.0, "AUTO", 0, 0, 0, 0, 0, 0, 0, TIMESTAMP.plusMinutes(2)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeParquet(rows.iterator(), out);
+
+        byte[] file = out.toByteArray();
+        byte[] magic = "PAR1".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(magic, Arrays.copyOfRange(file, 0, 4));
+        assertArrayEquals(magic, Arrays.copyOfRange(file, file.length - 4, file.length));
+
+        int footerLength = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        FileMetaData metaData = Util.readFileMetaData(
+                new ByteArrayInputStream(file, file.length - 8 - footerLength, footerLength));
+        assertEquals(3, metaData.getNum_rows());
+        // the exporter is set up with two rows per row group
+        assertEquals(2, metaData.getRow_groups().size());
+        assertEquals("timestamp", metaData.getSchema().get(1).getName());
+        assertTrue(metaData.getSchema().get(1).getLogicalType().isSetTIMESTAMP());
+        assertEquals(Type.DOUBLE, metaData.getSchema().get(2).getType());
+        assertTrue(metaData.getSchema().get(5).getLogicalType().isSetSTRING());
+
+        ColumnMetaData luftTemperatur = metaData.getRow_groups().get(0).getColumns().get(1).getMeta_data();
+        assertEquals(22.5, ByteBuffer.wrap(luftTemperatur.getStatistics().getMin_value())
+                .order(ByteOrder.LITTLE_ENDIAN).getDouble());
+        assertEquals(23.0, ByteBuffer.wrap(luftTemperatur.getStatistics().getMax_value())
+                .order(ByteOrder.LITTLE_ENDIAN).getDouble());
+
+        ColumnMetaData lysIndstilling = metaData.getRow_groups().get(0).getColumns().get(4).getMeta_data();
+        assertEquals(List.of("lysIndstilling"), lysIndstilling.getPath_in_schema());
+        assertTrue(lysIndstilling.getEncodings().contains(Encoding.RLE_DICTIONARY));
+        assertTrue(lysIndstilling.isSetDictionary_page_offset());
+        assertEquals(1, lysIndstilling.getStatistics().getNull_count());
+    }
+
+    @Test
+    void testWriteArrow_WritesDictionaryDeltasBeforeBatches() throws Exception {
+        List<MeasurementView> rows = List.of(
+                new MeasurementView(1L, 22.5, 0, 0, "2", 0, 0, 0, 0, 0, 0, 0, TIMESTAMP),
+                new MeasurementView(2L, 23.0, 0, 0, null, 0, 0, 0, 0, 0, 0, 0, TIMESTAMP.plusMinutes(1)),
+                new MeasurementView(3L, 21.5, 0, 0, "AUTO", 0, 0, 0, 0, 0, 0, 0, TIMESTAMP.plusMinutes(2)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeArrow(rows.iterator(), out);
+
+        ByteBuffer stream = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        List<Message> messages = new ArrayList<>();
+        while (true) {
+            assertEquals(0xFFFFFFFF, stream.getInt());
+            int metadataLength = stream.getInt();
+            if (metadataLength == 0) {
+                break;
+            }
+            Message message = Message.getRootAsMessage(stream.slice(stream.position(), metadataLength)
+                    .order(ByteOrder.LITTLE_ENDIAN));
+            messages.add(message);
+            stream.position(stream.position() + metadataLength + (int) message.bodyLength());
+        }
+        assertFalse(stream.hasRemaining());
+
+        assertEquals(5, messages.size());
+        Schema schema = (Schema) messages.get(0).header(new Schema());
+        assertEquals(12, schema.fieldsLength());
+        assertEquals(0, schema.fields(4).dictionary().id());
+
+        DictionaryBatch first = (DictionaryBatch) messages.get(1).header(new DictionaryBatch());
+        assertFalse(first.isDelta());
+        assertEquals(1, first.data().length());
+        RecordBatch batch = (RecordBatch) messages.get(2).header(new RecordBatch());
+        assertEquals(2, batch.length());
+        assertEquals(1, batch.nodes(4).nullCount());
+
+        DictionaryBatch delta = (DictionaryBatch) messages.get(3).header(new DictionaryBatch());
+        assertTrue(delta.isDelta());
+        assertEquals(1, delta.data().length());
+        assertEquals(MessageHeader.RecordBatch, messages.get(4).headerType());
+    }
+}
@@ -0,0 +1,110 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import via.sep4.model.PlantExperiment;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.model.RollupGranularity;
+import via.sep4.repository.MeasurementRollupRepository;
+import via.sep4.service.MeasurementRollupService;
+
+public class MeasurementRollupServiceTest {
+    private JdbcTemplate jdbcTemplate;
+    private MeasurementRollupService rollupService;
+    private PlantExperiment experiment;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        rollupService = new MeasurementRollupService(jdbcTemplate, mock(MeasurementRollupRepository.class));
+        experiment = new PlantExperiment();
+        experiment.setId(7L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecord_AggregatesBatchIntoOneRowPerBucketAndSensor() {
+        rollupService.record(List.of(
+                measurement(LocalDateTime.of(2025, 5, 1, 12, 0, 10), 21.0),
+                measurement(LocalDateTime.of(2025, 5, 1, 12, 0, 50), 25.0),
+                measurement(LocalDateTime.of(2025, 5, 1, 12, 0, 30), 19.0)));
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("MERGE INTO measurement_rollup"), rows.capture());
+
+        // one minute, one hour and one day bucket for each of the ten sensor columns
+        assertEquals(30, rows.getValue().size());
+
+        Object[] minute = rows.getValue().stream()
+                .filter(row -> "MINUTE".equals(row[1]) && "luftTemperatur".equals(row[3]))
+                .findFirst().orElseThrow();
+        assertEquals(7L, minute[0]);
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2025, 5, 1, 12, 0)), minute[2]);
+        assertEquals(3L, minute[4]);
+        assertEquals(19.0, minute[5]);
+        assertEquals(25.0, minute[6]);
+        assertEquals(65.0, minute[7]);
+        // last is the newest by timestamp, not the last in the batch
+        assertEquals(25.0, minute[8]);
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2025, 5, 1, 12, 0, 50)), minute[9]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecord_BumpsVersionOncePerExperiment() {
+        PlantExperiment other = new PlantExperiment();
+        other.setId(3L);
+        PlantMeasurements otherMeasurement = measurement(LocalDateTime.of(2025, 5, 1, 12, 0), 20.0);
+        otherMeasurement.setExperiment(other);
+
+        rollupService.record(List.of(
+                measurement(LocalDateTime.of(2025, 5, 1, 12, 0), 21.0),
+                otherMeasurement,
+                measurement(LocalDateTime.of(2025, 5, 2, 12, 0), 22.0)));
+
+        ArgumentCaptor<List<Object[]>> experiments = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("MERGE INTO measurement_version"), experiments.capture());
+        // in id order, like the buckets
+        assertEquals(List.of(3L, 7L), experiments.getValue().stream().map(row -> row[0]).toList());
+    }
+
+    @Test
+    void testRecord_SkipsMeasurementsWithoutExperiment() {
+        rollupService.record(List.of(new PlantMeasurements()));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), ArgumentMatchers.<List<Object[]>>any());
+    }
+
+    @Test
+    void testChooseGranularity_PicksFinestThatFits() {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+        assertEquals(RollupGranularity.MINUTE, rollupService.chooseGranularity(start, start.plusHours(12), 1000));
+        assertEquals(RollupGranularity.HOUR, rollupService.chooseGranularity(start, start.plusDays(30), 1000));
+        assertEquals(RollupGranularity.DAY, rollupService.chooseGranularity(start, start.plusYears(2), 1000));
+        assertEquals(RollupGranularity.DAY, rollupService.chooseGranularity(start, start.plusYears(10), 1000));
+    }
+
+    private PlantMeasurements measurement(LocalDateTime timestamp, double luftTemperatur) {
+        PlantMeasurements measurement = new PlantMeasurements();
+        measurement.setExperiment(experiment);
+        measurement.setTimestamp(timestamp);
+        measurement.setLuftTemperatur(luftTemperatur);
+        return measurement;
+    }
+}
@@ -0,0 +1,105 @@
+package via.sep4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import via.sep4.datalistener.IngestMetrics;
+
+import via.sep4.model.PlantMeasurements;
+import via.sep4.repository.PlantMeasurementsRepository;
+import via.sep4.service.MeasurementBulkLoader;
+import via.sep4.service.MeasurementRollupService;
+import via.sep4.service.MeasurementWriteBehindService;
+
+public class MeasurementWriteBehindServiceTest {
+    private PlantMeasurementsRepository measurementsRepository;
+    private MeasurementRollupService rollupService;
+    private MeasurementBulkLoader bulkLoader;
+    private SimpleMeterRegistry registry;
+    private MeasurementWriteBehindService writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        measurementsRepository = mock(PlantMeasurementsRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+        registry = new SimpleMeterRegistry();
+
+        rollupService = mock(MeasurementRollupService.class);
+        bulkLoader = mock(MeasurementBulkLoader.class);
+        when(bulkLoader.storeReplayed(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        writeBehind = new MeasurementWriteBehindService(measurementsRepository, transactionTemplate, rollupService,
+                bulkLoader, new IngestMetrics(registry), 100, 3, 60_000);
+        writeBehind.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writeBehind.stop();
+    }
+
+    @Test
+    void testEnqueue_FlushesWhenBatchIsFull() {
+        for (int i = 0; i < 3; i++) {
+            writeBehind.enqueue(new PlantMeasurements());
+        }
+
+        verify(measurementsRepository, timeout(2000)).saveAll(argThat(batch -> ((List<?>) batch).size() == 3));
+    }
+
+    @Test
+    void testStop_FlushesRemainingRows() throws InterruptedException {
+        writeBehind.enqueue(new PlantMeasurements());
+
+        writeBehind.stop();
+
+        verify(measurementsRepository).saveAll(anyList());
+        verify(rollupService).record(anyList());
+        assertEquals(1, writeBehind.getFlushedRows());
+        assertEquals(0, writeBehind.getQueueDepth());
+    }
+
+    @Test
+    void testWriteBatch_RecordsSaveTimeAndCommitLatency() {
+        PlantMeasurements measurement = new PlantMeasurements();
+        measurement.setTimestamp(LocalDateTime.now().minusSeconds(2));
+
+        writeBehind.writeBatch(List.of(measurement));
+
+        assertEquals(1, registry.get("esp.repository.save").tag("outcome", "success").timer().count());
+        Timer latency = registry.get("esp.ingest.commit.latency").timer();
+        assertEquals(1, latency.count());
+        assertTrue(latency.totalTime(TimeUnit.SECONDS) >= 2);
+    }
+
+    @Test
+    void testWriteBatch_CountsOnlyRowsNotStoredBefore() {
+        PlantMeasurements replayed = new PlantMeasurements();
+        replayed.setJournalSequence(1L);
+        PlantMeasurements stored = new PlantMeasurements();
+        stored.setJournalSequence(2L);
+        when(bulkLoader.storeReplayed(List.of(replayed, stored))).thenReturn(List.of(stored));
+
+        assertTrue(writeBehind.writeBatch(List.of(replayed, stored)));
+
+        assertEquals(1, writeBehind.getFlushedRows());
+    }
+}
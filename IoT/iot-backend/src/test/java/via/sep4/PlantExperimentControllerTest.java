@@ -1,17 +1,27 @@
 package via.sep4;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,17 +30,29 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import via.sep4.controller.PlantExperimentController;
+import via.sep4.dto.ExperimentSummary;
+import via.sep4.dto.MeasurementView;
+import via.sep4.dto.PageCursor;
+import via.sep4.dto.RollupBucket;
 import via.sep4.model.PlantExperiment;
+import via.sep4.model.PlantMeasurements;
+import via.sep4.model.RollupGranularity;
 import via.sep4.repository.PlantExperimentRepository;
 import via.sep4.repository.PlantMeasurementsRepository;
 import via.sep4.service.ExperimentConfigService;
+import via.sep4.service.ExportCache;
+import via.sep4.service.ExportCompressor;
+import via.sep4.service.MeasurementExporter;
+import via.sep4.service.MeasurementRollupService;
 
 public class PlantExperimentControllerTest {
     private MockMvc mockMvc;
@@ -44,6 +66,18 @@ public class PlantExperimentControllerTest {
     @Mock
     private ExperimentConfigService experimentConfigService;
 
+    @Mock
+    private MeasurementRollupService rollupService;
+
+    @Mock
+    private MeasurementExporter measurementExporter;
+
+    @Spy
+    private ExportCompressor exportCompressor = new ExportCompressor(6, 3);
+
+    @Mock
+    private ExportCache exportCache;
+
     @InjectMocks
     private PlantExperimentController controller;
 
@@ -73,6 +107,32 @@ public class PlantExperimentControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Experiment 1"));
     }
 
+    @Test
+    void testGetExperimentSummaries() throws Exception {
+        ExperimentSummary summary = new ExperimentSummary(1L, "Experiment 1", "Species", LocalDate.of(2025, 5, 1),
+                null, 42L, LocalDateTime.of(2025, 5, 1, 12, 0), LocalDateTime.of(2025, 5, 3, 8, 30));
+        when(experimentRepository.findSummaries()).thenReturn(List.of(summary));
+
+        mockMvc.perform(get("/api/experiments/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Experiment 1"))
+                .andExpect(jsonPath("$[0].measurementCount").value(42))
+                .andExpect(jsonPath("$[0].measurements").doesNotExist());
+    }
+
+    @Test
+    void testGetAllExperiments_OmitsMeasurements() throws Exception {
+        PlantExperiment experiment = new PlantExperiment();
+        experiment.setId(1L);
+        experiment.setName("Experiment 1");
+        experiment.setMeasurements(List.of(new PlantMeasurements()));
+        when(experimentRepository.findAll()).thenReturn(List.of(experiment));
+
+        mockMvc.perform(get("/api/experiments"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].measurements").doesNotExist());
+    }
+
     @Test
     void testGetExperimentById() throws Exception {
         PlantExperiment experiment = new PlantExperiment();
@@ -127,6 +187,180 @@ public class PlantExperimentControllerTest {
                 .andExpect(status().isNoContent());
 
         verify(experimentRepository, times(1)).deleteById(1L);
+        verify(rollupService).deleteForExperiment(1L);
+        verify(exportCache).evict(1L);
+    }
+
+    @Test
+    void testGetExperimentMeasurements_ReturnsProjections() throws Exception {
+        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 1, 12, 0);
+        MeasurementView view = new MeasurementView(5L, 22.5, 45.0, 70.0, "2", 1000.0, 500.0, 750.0, 30.0,
+                360.0, 250.0, 8.0, timestamp);
+
+        when(experimentRepository.existsById(1L)).thenReturn(true);
+        when(measurementsRepository.findViewPage(eq(1L), any(), anyLong(), any(), any())).thenReturn(List.of(view));
+
+        mockMvc.perform(get("/api/experiments/1/measurements"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[0].luftTemperatur").value(22.5))
+                .andExpect(jsonPath("$[0].lysIndstilling").value("2"))
+                .andExpect(jsonPath("$[0].experiment").doesNotExist());
+    }
+
+    @Test
+    void testGetExperimentMeasurements_ReturnsNextCursor() throws Exception {
+        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 1, 12, 0);
+        List<MeasurementView> views = List.of(
+                new MeasurementView(5L, 22.5, 45.0, 70.0, "2", 0, 0, 0, 0, 0, 0, 0, timestamp),
+                new MeasurementView(6L, 22.6, 45.0, 70.0, "2", 0, 0, 0, 0, 0, 0, 0, timestamp),
+                new MeasurementView(7L, 22.7, 45.0, 70.0, "2", 0, 0, 0, 0, 0, 0, 0, timestamp.plusMinutes(1)));
+
+        when(experimentRepository.existsById(1L)).thenReturn(true);
+        when(measurementsRepository.findViewPage(eq(1L), eq(timestamp), eq(4L), any(), any())).thenReturn(views);
+
+        String cursor = new PageCursor(timestamp, 4L).encode();
+        String next = mockMvc.perform(get("/api/experiments/1/measurements")
+                .param("cursor", cursor)
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(6))
+                .andExpect(header().string("Link", containsString("rel=\"next\"")))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        assertEquals(new PageCursor(timestamp, 6L), PageCursor.decode(next));
+    }
+
+    @Test
+    void testGetExperimentMeasurements_InvalidCursor() throws Exception {
+        when(experimentRepository.existsById(1L)).thenReturn(true);
+
+        mockMvc.perform(get("/api/experiments/1/measurements").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportToCsv_NoMeasurements() throws Exception {
+        when(experimentRepository.findById(1L)).thenReturn(Optional.of(new PlantExperiment()));
+        when(measurementExporter.hasMeasurements(eq(1L), any(), any())).thenReturn(false);
+
+        mockMvc.perform(get("/api/experiments/1/export/csv"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void testExportToCsv_NegotiatesEncoding() throws Exception {
+        when(experimentRepository.findById(1L)).thenReturn(Optional.of(new PlantExperiment()));
+        when(measurementExporter.hasMeasurements(eq(1L), any(), any())).thenReturn(true);
+
+        mockMvc.perform(get("/api/experiments/1/export/csv").header("Accept-Encoding", "gzip, deflate, br, zstd"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "zstd"))
+                .andExpect(header().string("Vary", "Accept-Encoding"));
+    }
+
+    @Test
+    void testExportCompressed_DownloadsFile() throws Exception {
+        when(experimentRepository.findById(1L)).thenReturn(Optional.of(new PlantExperiment()));
+        when(measurementExporter.hasMeasurements(eq(1L), any(), any())).thenReturn(true);
+
+        mockMvc.perform(get("/api/experiments/1/export/ndjson.gz"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Content-Disposition", containsString("experiment_1_data.ndjson.gz")));
+    }
+
+    @Test
+    void testGetExperimentMeasurements_NotModified() throws Exception {
+        when(experimentRepository.existsById(1L)).thenReturn(true);
+        when(rollupService.getVersion(1L)).thenReturn(42L);
+        when(measurementsRepository.findViewPage(eq(1L), any(), anyLong(), any(), any())).thenReturn(List.of());
+
+        String etag = mockMvc.perform(get("/api/experiments/1/measurements"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/experiments/1/measurements").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(measurementsRepository, times(1)).findViewPage(eq(1L), any(), anyLong(), any(), any());
+
+        // storing measurements changes the validator
+        when(rollupService.getVersion(1L)).thenReturn(43L);
+        mockMvc.perform(get("/api/experiments/1/measurements").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testExportToCsv_NotModified() throws Exception {
+        when(experimentRepository.findById(1L)).thenReturn(Optional.of(new PlantExperiment()));
+        when(rollupService.getVersion(1L)).thenReturn(42L);
+        when(measurementExporter.hasMeasurements(eq(1L), any(), any())).thenReturn(true);
+
+        String etag = mockMvc.perform(get("/api/experiments/1/export/csv"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/experiments/1/export/csv").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(measurementExporter, times(1)).hasMeasurements(eq(1L), any(), any());
+
+        // another range is another representation
+        mockMvc.perform(get("/api/experiments/1/export/csv").header("If-None-Match", etag)
+                .param("startDate", "2025-05-01T00:00:00"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testExportToCsv_FinishedExperimentIsServedFromCache() throws Exception {
+        PlantExperiment experiment = new PlantExperiment();
+        experiment.setEndDate(LocalDate.now().minusDays(1));
+        when(experimentRepository.findById(1L)).thenReturn(Optional.of(experiment));
+        when(rollupService.getVersion(1L)).thenReturn(42L);
+        when(measurementExporter.hasMeasurements(eq(1L), any(), any())).thenReturn(true);
+        when(exportCache.find(eq(1L), eq(42L), any())).thenReturn(out -> out.write("cached".getBytes()));
+
+        MvcResult result = mockMvc.perform(get("/api/experiments/1/export/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string("cached"));
+        verify(exportCache, never()).store(any(), anyLong(), any(), any());
+        verify(measurementExporter, never()).writeCsv(any(), any(), any(), any());
+    }
+
+    @Test
+    void testExportToParquet_IsNeverContentEncoded() throws Exception {
+        when(experimentRepository.findById(1L)).thenReturn(Optional.of(new PlantExperiment()));
+        when(measurementExporter.hasMeasurements(eq(1L), any(), any())).thenReturn(true);
+
+        mockMvc.perform(get("/api/experiments/1/export/parquet").header("Accept-Encoding", "gzip, zstd"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/vnd.apache.parquet"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Content-Disposition", containsString("experiment_1_data.parquet")));
+    }
+
+    @Test
+    void testGetMeasurementRollups_ChoosesGranularity() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 5, 31, 0, 0);
+        RollupBucket bucket = new RollupBucket(LocalDateTime.of(2025, 5, 1, 12, 0));
+        bucket.addSensor("luftTemperatur", new RollupBucket.SensorStats(20.0, 24.0, 22.0, 23.5), 60);
+
+        when(experimentRepository.existsById(1L)).thenReturn(true);
+        when(rollupService.chooseGranularity(start, end, 1000)).thenReturn(RollupGranularity.HOUR);
+        when(rollupService.findBuckets(1L, RollupGranularity.HOUR, start, end)).thenReturn(List.of(bucket));
+
+        mockMvc.perform(get("/api/experiments/1/measurements/rollups")
+                .param("startDate", "2025-05-01T00:00:00")
+                .param("endDate", "2025-05-31T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.granularity").value("HOUR"))
+                .andExpect(jsonPath("$.buckets[0].count").value(60))
+                .andExpect(jsonPath("$.buckets[0].sensors.luftTemperatur.avg").value(22.0))
+                .andExpect(jsonPath("$.buckets[0].sensors.luftTemperatur.last").value(23.5));
     }
 
     @Test
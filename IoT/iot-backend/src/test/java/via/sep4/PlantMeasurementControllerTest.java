@@ -1,12 +1,17 @@
 package via.sep4;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -16,10 +21,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
@@ -38,6 +46,8 @@ import via.sep4.processing.DataValidator;
 import via.sep4.repository.InvalidMeasurementRepository;
 import via.sep4.repository.PlantExperimentRepository;
 import via.sep4.repository.PlantMeasurementsRepository;
+import via.sep4.service.MeasurementBulkLoader;
+import via.sep4.service.MeasurementRollupService;
 
 public class PlantMeasurementControllerTest {
     private MockMvc mockMvc;
@@ -54,6 +64,15 @@ public class PlantMeasurementControllerTest {
     @Mock
     private DataValidator dataValidator;
 
+    @Mock
+    private MeasurementBulkLoader bulkLoader;
+
+    @Mock
+    private MeasurementRollupService rollupService;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private PlantMeasurementController controller;
 
@@ -79,7 +98,8 @@ public class PlantMeasurementControllerTest {
         List<InvalidMeasurement> invalidMeasurements = List.of(invalidMeasurement);
 
         when(experimentRepository.existsById(experimentId)).thenReturn(true);
-        when(invalidMeasurementRepository.findByExperimentId(experimentId)).thenReturn(invalidMeasurements);
+        when(invalidMeasurementRepository.findPage(eq(experimentId), any(), anyLong(), any()))
+                .thenReturn(invalidMeasurements);
 
         mockMvc.perform(get("/api/measurements/{experimentId}/invalid", experimentId))
                 .andExpect(status().isOk())
@@ -190,6 +210,7 @@ public class PlantMeasurementControllerTest {
                 .andExpect(jsonPath("$.jordFugtighed").value(70.0));
 
         verify(measurementsRepository).save(any(PlantMeasurements.class));
+        verify(rollupService).record(List.of(savedMeasurement));
     }
 
     @Test
@@ -244,10 +265,14 @@ public class PlantMeasurementControllerTest {
                 csvContent.getBytes());
 
         when(experimentRepository.findById(experimentId)).thenReturn(Optional.of(experiment));
-        when(measurementsRepository.save(any(PlantMeasurements.class))).thenAnswer(invocation -> {
-            PlantMeasurements m = invocation.getArgument(0);
-            m.setId(1L);
-            return m;
+        when(bulkLoader.load(any())).thenAnswer(invocation -> {
+            Iterator<?> rows = invocation.getArgument(0);
+            long loaded = 0;
+            while (rows.hasNext()) {
+                rows.next();
+                loaded++;
+            }
+            return loaded;
         });
 
         mockMvc.perform(multipart("/api/measurements/{experimentId}/upload", experimentId)
@@ -255,8 +280,11 @@ public class PlantMeasurementControllerTest {
                 .param("hasHeaders", "true")
                 .param("delimiter", ","))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.totalRows").isNumber())
-                .andExpect(jsonPath("$.successCount").isNumber())
+                .andExpect(jsonPath("$.totalRows").value(2))
+                .andExpect(jsonPath("$.successCount").value(2))
                 .andExpect(jsonPath("$.status").value("success"));
+
+        verify(bulkLoader, times(1)).load(any());
+        verify(measurementsRepository, never()).save(any(PlantMeasurements.class));
     }
 }
@@ -0,0 +1,366 @@
+package via.sep4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Non-interactive load generator for the ESP TCP ingest port. Opens many
+ * simulated board connections and streams the line format from
+ * iot-drivers/src/main.c at a fixed total rate, with a share of malformed
+ * lines mixed in.
+ *
+ * End-to-end persistence latency is sampled with probe readings: a separate
+ * connection sends a reading with a distance value the load never uses and
+ * polls the measurements API until the row shows up. The server timestamps
+ * readings on arrival, so the generator and backend are expected to run with
+ * synchronized clocks.
+ *
+ * <pre>
+ * java -jar testing_backend.jar load --connections 2000 --rate 5000 --duration 60 --experiment 1
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final long PROBE_DISTANCE_BASE = 1_000_000;
+    // largest page the measurements listing serves, and the header carrying the next page's cursor
+    private static final int PROBE_PAGE_SIZE = 10000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final Map<String, String> options;
+    private final String host;
+    private final int port;
+    private final int connectionCount;
+    private final int threadCount;
+    private final double rate;
+    private final long durationMs;
+    private final double malformedRatio;
+    private final String apiUrl;
+    private final long experimentId;
+    private final long probeIntervalMs;
+    private final long probePollMs;
+    private final long probeTimeoutMs;
+    private final long clockSkewMs;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final Histogram latency = new Histogram(TimeUnit.MINUTES.toMicros(5), 3);
+
+    private final AtomicLong sentLines = new AtomicLong();
+    private final AtomicLong malformedLines = new AtomicLong();
+    private final AtomicLong connectErrors = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicLong probeTimeouts = new AtomicLong();
+    private final AtomicLong probeErrors = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.host = options.getOrDefault("host", "localhost");
+        this.port = Integer.parseInt(options.getOrDefault("port", "23"));
+        this.connectionCount = Integer.parseInt(options.getOrDefault("connections", "1000"));
+        this.threadCount = Math.min(connectionCount, Integer.parseInt(options.getOrDefault("threads", "16")));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "1000"));
+        this.durationMs = TimeUnit.SECONDS.toMillis(Long.parseLong(options.getOrDefault("duration", "60")));
+        this.malformedRatio = Double.parseDouble(options.getOrDefault("malformed-ratio", "0.05"));
+        this.apiUrl = options.getOrDefault("api", "http://localhost:8080/api");
+        this.experimentId = Long.parseLong(options.getOrDefault("experiment", "1"));
+        this.probeIntervalMs = Long.parseLong(options.getOrDefault("probe-interval-ms", "500"));
+        this.probePollMs = Long.parseLong(options.getOrDefault("probe-poll-ms", "20"));
+        this.probeTimeoutMs = Long.parseLong(options.getOrDefault("probe-timeout-ms", "30000"));
+        this.clockSkewMs = Long.parseLong(options.getOrDefault("clock-skew-ms", "500"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                System.err.println("Unexpected argument: " + args[i]);
+                System.exit(1);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        System.exit(new LoadGenerator(options).run());
+    }
+
+    /**
+     * @return process exit code, 2 if a --fail-below-rate or --fail-above-p99-ms
+     *         threshold was crossed
+     */
+    public int run() throws Exception {
+        System.out.println("ESP ingest load generator");
+        System.out.println("=========================");
+        System.out.printf("Target %s:%d, %d connection(s) on %d thread(s), %.0f lines/s for %d s, "
+                + "%.1f%% malformed%n", host, port, connectionCount, threadCount, rate, durationMs / 1000, malformedRatio * 100);
+
+        JsonNode statusBefore = fetchIngestStatus();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            int connections = connectionCount / threadCount + (i < connectionCount % threadCount ? 1 : 0);
+            Thread sender = new Thread(() -> runSender(connections, rate / threadCount), "esp-load-" + i);
+            threads.add(sender);
+        }
+        Thread prober = new Thread(this::runProber, "esp-load-probe");
+        threads.add(prober);
+
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        long lastSent = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(5000, Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            long sent = sentLines.get();
+            System.out.printf("[%3d s] %,d lines sent (%,d since last report), %d connect / %d write error(s)%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), sent, sent - lastSent,
+                    connectErrors.get(), writeErrors.get());
+            lastSent = sent;
+        }
+
+        running = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        return report(elapsedSeconds, statusBefore, fetchIngestStatus());
+    }
+
+    private void runSender(int connections, double linesPerSecond) {
+        List<Socket> sockets = new ArrayList<>(connections);
+        List<OutputStream> outputs = new ArrayList<>(connections);
+        for (int i = 0; i < connections && running; i++) {
+            try {
+                Socket socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(host, port), 5000);
+                sockets.add(socket);
+                outputs.add(socket.getOutputStream());
+            } catch (IOException e) {
+                connectErrors.incrementAndGet();
+            }
+        }
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(linesPerSecond, 0.001));
+        long next = System.nanoTime();
+        int index = 0;
+
+        while (running && !outputs.isEmpty()) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            next += intervalNanos;
+
+            index = index % outputs.size();
+            try {
+                outputs.get(index).write(nextLine().getBytes(StandardCharsets.US_ASCII));
+                sentLines.incrementAndGet();
+                index++;
+            } catch (IOException e) {
+                writeErrors.incrementAndGet();
+                closeQuietly(sockets.remove(index));
+                outputs.remove(index);
+            }
+        }
+
+        sockets.forEach(this::closeQuietly);
+    }
+
+    private String nextLine() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int distance = 2 + random.nextInt(399);
+        String motion = random.nextInt(10) == 0 ? "Yes" : "No";
+
+        if (random.nextDouble() < malformedRatio) {
+            malformedLines.incrementAndGet();
+            switch (random.nextInt(4)) {
+                case 0:
+                    return "Distance: " + distance + " cm, Temp: ab.c C, Humidity: 45.0 %, Motion: " + motion + "\n";
+                case 1:
+                    return "Distance: " + distance + " cm, Temp: 2\n";
+                case 2:
+                    return "Distance: " + distance + " cm, Pressure: 1013 hPa, Motion: " + motion + "\n";
+                default:
+                    return "#~@! garbage from a flaky UART\n";
+            }
+        }
+
+        if (random.nextInt(50) == 0) {
+            return String.format("Distance: %d cm, DHT11 sensor error!, Motion: %s\n", distance, motion);
+        }
+        return String.format("Distance: %d cm, Temp: %d.%d C, Humidity: %d.%d %%, Motion: %s\n",
+                distance, 15 + random.nextInt(20), random.nextInt(10), 30 + random.nextInt(50), 0, motion);
+    }
+
+    private void runProber() {
+        long probe = 0;
+
+        try (Socket socket = new Socket()) {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 5000);
+            OutputStream out = socket.getOutputStream();
+
+            while (running) {
+                long distance = PROBE_DISTANCE_BASE + probe++;
+                LocalDateTime sentAt = LocalDateTime.now();
+                long sentNanos = System.nanoTime();
+                out.write(String.format("Distance: %d cm, Temp: 22.0 C, Humidity: 50.0 %%, Motion: No\n", distance)
+                        .getBytes(StandardCharsets.US_ASCII));
+
+                if (awaitProbe(distance, sentAt, sentNanos)) {
+                    latency.recordValue(Math.min(latency.getHighestTrackableValue(),
+                            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos)));
+                } else {
+                    probeTimeouts.incrementAndGet();
+                }
+                Thread.sleep(probeIntervalMs);
+            }
+        } catch (IOException e) {
+            probeErrors.incrementAndGet();
+            System.err.println("Probe connection failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean awaitProbe(long distance, LocalDateTime sentAt, long sentNanos) throws InterruptedException {
+        String firstPage = apiUrl + "/experiments/" + experimentId + "/measurements"
+                + "?startDate=" + sentAt.minusNanos(TimeUnit.MILLISECONDS.toNanos(clockSkewMs))
+                + "&endDate=" + sentAt.plusNanos(TimeUnit.MILLISECONDS.toNanos(clockSkewMs))
+                + "&limit=" + PROBE_PAGE_SIZE;
+        long deadline = sentNanos + TimeUnit.MILLISECONDS.toNanos(probeTimeoutMs);
+
+        while (System.nanoTime() < deadline) {
+            try {
+                if (probeStored(firstPage, distance)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                probeErrors.incrementAndGet();
+            }
+            Thread.sleep(probePollMs);
+        }
+        return false;
+    }
+
+    /**
+     * Looks for the probe in every page of its window. At high rates the
+     * window holds more rows than one page, so the listing's next-page cursor
+     * is followed. Each poll starts over from the first page, since rows can
+     * be committed out of timestamp order.
+     */
+    private boolean probeStored(String firstPage, long distance) throws IOException, InterruptedException {
+        String uri = firstPage;
+        while (uri != null) {
+            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(uri)).GET().build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                probeErrors.incrementAndGet();
+                return false;
+            }
+            for (JsonNode measurement : mapper.readTree(response.body())) {
+                if (measurement.path("afstandTilHøjde").asLong() == distance) {
+                    return true;
+                }
+            }
+            uri = response.headers().firstValue(NEXT_CURSOR_HEADER)
+                    .map(cursor -> firstPage + "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8))
+                    .orElse(null);
+        }
+        return false;
+    }
+
+    private JsonNode fetchIngestStatus() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(apiUrl + "/ingest/status")).GET().build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 ? mapper.readTree(response.body()) : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private int report(double elapsedSeconds, JsonNode statusBefore, JsonNode statusAfter) {
+        double linesPerSecond = sentLines.get() / elapsedSeconds;
+
+        System.out.println("\nResults");
+        System.out.println("-------");
+        System.out.printf("Lines sent:          %,d (%,d malformed)%n", sentLines.get(), malformedLines.get());
+        System.out.printf("Lines/sec accepted:  %,.0f%n", linesPerSecond);
+        System.out.printf("Connect errors:      %d%n", connectErrors.get());
+        System.out.printf("Write errors:        %d%n", writeErrors.get());
+
+        if (statusBefore != null && statusAfter != null) {
+            System.out.printf("Server accepted:     %,d%n",
+                    delta(statusBefore, statusAfter, "ingestQueue", "acceptedLines"));
+            System.out.printf("Server dropped:      %,d%n",
+                    delta(statusBefore, statusAfter, "ingestQueue", "droppedLines"));
+            System.out.printf("Rows flushed:        %,d%n",
+                    delta(statusBefore, statusAfter, "writeBehind", "flushedRows"));
+            System.out.printf("Rows failed:         %,d%n",
+                    delta(statusBefore, statusAfter, "writeBehind", "failedRows"));
+        } else {
+            System.out.println("Server counters:     unavailable (" + apiUrl + "/ingest/status)");
+        }
+
+        System.out.printf("%nPersistence latency (%d probe(s), %d timeout(s), %d error(s)):%n",
+                latency.getTotalCount(), probeTimeouts.get(), probeErrors.get());
+        for (double percentile : new double[] { 50, 90, 99, 99.9 }) {
+            System.out.printf("  p%-5s %10.1f ms%n", percentile, latency.getValueAtPercentile(percentile) / 1000.0);
+        }
+        System.out.printf("  max    %10.1f ms%n", latency.getMaxValue() / 1000.0);
+
+        boolean failed = false;
+        if (options.containsKey("fail-below-rate")
+                && linesPerSecond < Double.parseDouble(options.get("fail-below-rate"))) {
+            System.out.println("\nFAIL: throughput below " + options.get("fail-below-rate") + " lines/s");
+            failed = true;
+        }
+        if (options.containsKey("fail-above-p99-ms")
+                && latency.getValueAtPercentile(99) / 1000.0 > Double.parseDouble(options.get("fail-above-p99-ms"))) {
+            System.out.println("\nFAIL: p99 persistence latency above " + options.get("fail-above-p99-ms") + " ms");
+            failed = true;
+        }
+        return failed ? 2 : 0;
+    }
+
+    private long delta(JsonNode before, JsonNode after, String section, String counter) {
+        return after.path(section).path(counter).asLong() - before.path(section).path(counter).asLong();
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already broken
+        }
+    }
+}
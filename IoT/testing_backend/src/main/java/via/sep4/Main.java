@@ -19,7 +19,12 @@ public class Main {
     private static final Random random = new Random();
     private static final HttpClient client = HttpClient.newHttpClient();
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("load")) {
+            LoadGenerator.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("Greenhouse Sensor Data Simulator");